@@ -0,0 +1,100 @@
+-- Partition pruning benchmark for date-window queries on users.cin_release_date.
+--
+-- Seeds the same rows into an unpartitioned and a year-partitioned copy of the users table, then
+-- runs the query behind GET /api/v1/users?releasedFrom=&releasedTo= against both with EXPLAIN
+-- (the "partitions" column shows what is read) and EXPLAIN ANALYZE (actual time and rows read).
+--
+-- Run against a scratch MySQL 8.0.18+ schema, never production:
+--   mysql -u root -p scratch_db < scripts/benchmark/partition_pruning.sql
+-- Adjust @rows to the size you want to test (2M rows takes a few minutes to seed).
+--
+-- No results have been recorded yet: the script has not been run on a representative server, and the
+-- expectations in the comments below are what pruning should show, not measurements. When it is run, add the MySQL
+-- version, server size, @rows and the EXPLAIN ANALYZE times for both tables to the Results section at the end.
+
+SET @rows := 2000000;
+SET SESSION cte_max_recursion_depth = 100000000;
+
+DROP TABLE IF EXISTS users_bench_flat;
+DROP TABLE IF EXISTS users_bench_partitioned;
+
+CREATE TABLE users_bench_flat (
+    id               BIGINT       NOT NULL AUTO_INCREMENT,
+    name             VARCHAR(255) NOT NULL,
+    cin              VARCHAR(255) NOT NULL,
+    cin_release_date DATE         NOT NULL,
+    married_status   BIT          NOT NULL,
+    version          BIGINT       NOT NULL DEFAULT 0,
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_users_cin (cin)
+) ENGINE = InnoDB;
+
+-- Release dates spread uniformly over 1990-01-01 .. 2024-12-31 (12784 days)
+INSERT INTO users_bench_flat (name, cin, cin_release_date, married_status)
+WITH RECURSIVE seq (n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < @rows)
+SELECT CONCAT('Bench User ', n),
+       LPAD(n, 8, '0'),
+       DATE_ADD('1990-01-01', INTERVAL (n * 7919) % 12784 DAY),
+       n % 2
+FROM seq;
+
+-- Same layout as after V2__partition_users_by_cin_release_year.sql, with one partition per year of data
+CREATE TABLE users_bench_partitioned (
+    id               BIGINT       NOT NULL AUTO_INCREMENT,
+    name             VARCHAR(255) NOT NULL,
+    cin              VARCHAR(255) NOT NULL,
+    cin_release_date DATE         NOT NULL,
+    married_status   BIT          NOT NULL,
+    version          BIGINT       NOT NULL DEFAULT 0,
+    PRIMARY KEY (id, cin_release_date),
+    UNIQUE KEY uk_users_cin_release (cin, cin_release_date),
+    KEY idx_users_cin (cin)
+) ENGINE = InnoDB
+    PARTITION BY RANGE (YEAR(cin_release_date)) (
+        PARTITION p_before_1990 VALUES LESS THAN (1990),
+        PARTITION p1990 VALUES LESS THAN (1991), PARTITION p1991 VALUES LESS THAN (1992),
+        PARTITION p1992 VALUES LESS THAN (1993), PARTITION p1993 VALUES LESS THAN (1994),
+        PARTITION p1994 VALUES LESS THAN (1995), PARTITION p1995 VALUES LESS THAN (1996),
+        PARTITION p1996 VALUES LESS THAN (1997), PARTITION p1997 VALUES LESS THAN (1998),
+        PARTITION p1998 VALUES LESS THAN (1999), PARTITION p1999 VALUES LESS THAN (2000),
+        PARTITION p2000 VALUES LESS THAN (2001), PARTITION p2001 VALUES LESS THAN (2002),
+        PARTITION p2002 VALUES LESS THAN (2003), PARTITION p2003 VALUES LESS THAN (2004),
+        PARTITION p2004 VALUES LESS THAN (2005), PARTITION p2005 VALUES LESS THAN (2006),
+        PARTITION p2006 VALUES LESS THAN (2007), PARTITION p2007 VALUES LESS THAN (2008),
+        PARTITION p2008 VALUES LESS THAN (2009), PARTITION p2009 VALUES LESS THAN (2010),
+        PARTITION p2010 VALUES LESS THAN (2011), PARTITION p2011 VALUES LESS THAN (2012),
+        PARTITION p2012 VALUES LESS THAN (2013), PARTITION p2013 VALUES LESS THAN (2014),
+        PARTITION p2014 VALUES LESS THAN (2015), PARTITION p2015 VALUES LESS THAN (2016),
+        PARTITION p2016 VALUES LESS THAN (2017), PARTITION p2017 VALUES LESS THAN (2018),
+        PARTITION p2018 VALUES LESS THAN (2019), PARTITION p2019 VALUES LESS THAN (2020),
+        PARTITION p2020 VALUES LESS THAN (2021), PARTITION p2021 VALUES LESS THAN (2022),
+        PARTITION p2022 VALUES LESS THAN (2023), PARTITION p2023 VALUES LESS THAN (2024),
+        PARTITION p2024 VALUES LESS THAN (2025),
+        PARTITION p_future VALUES LESS THAN MAXVALUE
+    );
+
+INSERT INTO users_bench_partitioned SELECT * FROM users_bench_flat;
+ANALYZE TABLE users_bench_flat, users_bench_partitioned;
+
+-- One-month renewal window: expected to read every row on the flat table, ~1/35 of them on the partitioned one
+EXPLAIN SELECT * FROM users_bench_flat
+WHERE cin_release_date BETWEEN '2015-03-01' AND '2015-03-31';
+EXPLAIN SELECT * FROM users_bench_partitioned
+WHERE cin_release_date BETWEEN '2015-03-01' AND '2015-03-31';
+
+EXPLAIN ANALYZE SELECT * FROM users_bench_flat
+WHERE cin_release_date BETWEEN '2015-03-01' AND '2015-03-31';
+EXPLAIN ANALYZE SELECT * FROM users_bench_partitioned
+WHERE cin_release_date BETWEEN '2015-03-01' AND '2015-03-31';
+
+-- Multi-year window: pruning still limits the scan to the three matching partitions
+EXPLAIN ANALYZE SELECT * FROM users_bench_flat
+WHERE cin_release_date BETWEEN '2018-01-01' AND '2020-12-31';
+EXPLAIN ANALYZE SELECT * FROM users_bench_partitioned
+WHERE cin_release_date BETWEEN '2018-01-01' AND '2020-12-31';
+
+DROP TABLE users_bench_flat;
+DROP TABLE users_bench_partitioned;
+
+-- Results
+-- (none recorded yet)
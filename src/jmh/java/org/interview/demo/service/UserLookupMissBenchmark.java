@@ -0,0 +1,86 @@
+package org.interview.demo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import org.interview.demo.model.User;
+import org.interview.demo.repository.UserRepository;
+import org.interview.demo.snapshot.UserSnapshotStore;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the exception-based lookup ({@link UserService#getUserByCinAndCinReleaseDate})
+ * with the Optional-based one ({@link UserService#findUserByCinAndCinReleaseDate}) at high miss rates.
+ * The repository is an in-memory stub so only the service-level cost of a miss is measured.
+ *
+ * Run with: ./gradlew jmh
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class UserLookupMissBenchmark {
+
+    private static final int KEY_SPACE = 1024;
+    private static final LocalDate RELEASE_DATE = LocalDate.of(2022, 5, 10);
+
+    /** Percentage of lookups that miss. */
+    @Param({"50", "90", "99"})
+    public int missRatePercent;
+
+    private UserServiceImpl userService;
+    private String[] cins;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        User hit = new User(1L, "Bench User", "00000000", RELEASE_DATE, true);
+        // Every CIN whose numeric value falls below the hit threshold is found, the rest miss
+        int hitThreshold = KEY_SPACE * (100 - missRatePercent) / 100;
+        UserRepository repository = (UserRepository) Proxy.newProxyInstance(
+                UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findByCinAndCinReleaseDate")) {
+                        return Integer.parseInt((String) args[0]) < hitThreshold ? Optional.of(hit) : Optional.empty();
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        // Lookups never touch the statistics, so no UserStatsService is needed; the snapshot is disabled
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        userService = new UserServiceImpl(repository,
+                new UserLookupCoalescer(repository, meterRegistry, 2000), null,
+                new UserSnapshotStore(repository, meterRegistry, false, "unused", Duration.ofMinutes(10)));
+
+        cins = new String[KEY_SPACE];
+        for (int i = 0; i < KEY_SPACE; i++) {
+            // Spread hits and misses so the branch is not trivially predictable
+            cins[i] = String.format("%08d", (i * 617) % KEY_SPACE);
+        }
+    }
+
+    private String nextCin() {
+        cursor = (cursor + 1) & (KEY_SPACE - 1);
+        return cins[cursor];
+    }
+
+    @Benchmark
+    public void exceptionOnMiss(Blackhole blackhole) {
+        try {
+            blackhole.consume(userService.getUserByCinAndCinReleaseDate(nextCin(), RELEASE_DATE));
+        } catch (EntityNotFoundException e) {
+            blackhole.consume(e.getMessage());
+        }
+    }
+
+    @Benchmark
+    public void optionalOnMiss(Blackhole blackhole) {
+        Optional<User> user = userService.findUserByCinAndCinReleaseDate(nextCin(), RELEASE_DATE);
+        blackhole.consume(user.isPresent() ? user.get() : null);
+    }
+}
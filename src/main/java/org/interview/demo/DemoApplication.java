@@ -4,6 +4,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.boot.web.servlet.support.SpringBootServletInitializer;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Main Spring Boot application class.
@@ -11,6 +12,7 @@ import org.springframework.boot.web.servlet.support.SpringBootServletInitializer
  * in a standalone servlet container like Apache Tomcat.
  */
 @SpringBootApplication
+@EnableScheduling // Stats cache refresh, lookup snapshot writes and users partition maintenance
 public class DemoApplication extends SpringBootServletInitializer { // <<< EXTEND this class
 
     /**
@@ -0,0 +1,70 @@
+package org.interview.demo.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/**
+ * Lets a handler tune the async processing of its own request.
+ *
+ * A {@code StreamingResponseBody} is written asynchronously, under {@code spring.mvc.async.request-timeout}
+ * (the servlet container's 30 s when unset), which would cut long downloads short. Raising that default would
+ * loosen it for every async request; instead, a handler calls {@link #setTimeout} before returning the body.
+ * A handler can also register a callback with {@link #onCompletion}, which runs however the async processing
+ * ends, including when it timed out before the body was ever written.
+ */
+@Configuration
+public class AsyncRequestSupport implements WebMvcConfigurer {
+
+    private static final String TIMEOUT_ATTRIBUTE = AsyncRequestSupport.class.getName() + ".timeout";
+    private static final String COMPLETION_ATTRIBUTE = AsyncRequestSupport.class.getName() + ".completion";
+
+    /**
+     * Sets the timeout of the async processing the current handler is about to start.
+     * @param request The current request.
+     * @param timeout The time the async processing may take before it is timed out.
+     */
+    public static void setTimeout(HttpServletRequest request, Duration timeout) {
+        request.setAttribute(TIMEOUT_ATTRIBUTE, timeout);
+    }
+
+    /**
+     * Registers a callback to run once the async processing the current handler is about to start has ended.
+     * @param request The current request.
+     * @param callback Run once, on completion, timeout or error.
+     */
+    public static void onCompletion(HttpServletRequest request, Runnable callback) {
+        request.setAttribute(COMPLETION_ATTRIBUTE, callback);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                // Runs just before async processing starts, while its timeout can still be changed
+                Object timeout = request.getAttribute(TIMEOUT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+                if (timeout instanceof Duration duration && request instanceof AsyncWebRequest asyncWebRequest) {
+                    asyncWebRequest.setTimeout(duration.toMillis());
+                }
+            }
+
+            @Override
+            public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+                Object callback = request.getAttribute(COMPLETION_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+                if (callback instanceof Runnable runnable) {
+                    request.removeAttribute(COMPLETION_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+                    runnable.run();
+                }
+            }
+        });
+    }
+}
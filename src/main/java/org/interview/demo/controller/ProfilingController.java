@@ -0,0 +1,99 @@
+package org.interview.demo.controller;
+
+import org.interview.demo.profiling.JfrRecordingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Admin endpoints for on-demand JFR profiling.
+ * Only registered when {@code profiling.admin.enabled=true}; the endpoints are not authenticated,
+ * so they must only be reachable from the operators' network.
+ */
+@RestController
+@RequestMapping("/api/v1/admin/profiling")
+@ConditionalOnProperty(name = "profiling.admin.enabled", havingValue = "true")
+public class ProfilingController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProfilingController.class);
+
+    private final JfrRecordingService jfrRecordingService;
+
+    @Autowired
+    public ProfilingController(JfrRecordingService jfrRecordingService) {
+        this.jfrRecordingService = jfrRecordingService;
+    }
+
+    /**
+     * Starts a bounded JFR recording.
+     * @param durationSeconds How long to record; capped by {@code profiling.jfr.max-duration}.
+     * @return 202 if started, 409 if a recording is already running.
+     */
+    @PostMapping("/start")
+    public ResponseEntity<?> start(@RequestParam(required = false) Long durationSeconds) {
+        if (durationSeconds != null && durationSeconds <= 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("durationSeconds must be positive.");
+        }
+        try {
+            boolean started = jfrRecordingService.start(durationSeconds == null ? null : Duration.ofSeconds(durationSeconds));
+            if (!started) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body("A recording is already running.");
+            }
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("running", true));
+        } catch (Exception e) {
+            logger.error("Could not start JFR recording: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Could not start recording.");
+        }
+    }
+
+    /**
+     * Stops the recording and returns it as a .jfr file.
+     * @return 200 with the recording, or 404 if no recording was started.
+     */
+    @PostMapping("/stop")
+    public ResponseEntity<?> stop() {
+        try {
+            Optional<Path> file = jfrRecordingService.stop();
+            if (file.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No recording to stop.");
+            }
+            Path jfrFile = file.get();
+            StreamingResponseBody body = out -> {
+                try {
+                    Files.copy(jfrFile, out);
+                } finally {
+                    Files.deleteIfExists(jfrFile);
+                }
+            };
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + jfrFile.getFileName() + "\"")
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .body(body);
+        } catch (Exception e) {
+            logger.error("Could not stop JFR recording: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Could not stop recording.");
+        }
+    }
+
+    /**
+     * @return Whether a recording is currently running.
+     */
+    @GetMapping
+    public ResponseEntity<?> status() {
+        return ResponseEntity.ok(Map.of("running", jfrRecordingService.isRunning()));
+    }
+}
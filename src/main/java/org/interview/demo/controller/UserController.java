@@ -1,20 +1,37 @@
 package org.interview.demo.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.interview.demo.model.User;
+import org.interview.demo.model.UserPatch;
+import org.interview.demo.profiling.UserRequestPhaseEvent;
+import org.interview.demo.service.UserCreationResult;
+import org.interview.demo.service.UserModificationResult;
 import org.interview.demo.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import jakarta.persistence.EntityNotFoundException; // For exceptions from service layer
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.HashMap; // For structured error response for ConstraintViolationException
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;     // For structured error response
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors; // For structured error response
 
 /**
@@ -26,11 +43,26 @@ public class UserController {
 
     private static final Logger logger = LoggerFactory.getLogger(UserController.class);
 
+    /** Upper bound on IDs per bulk delete, to keep the IN list and the statement size reasonable. */
+    private static final int MAX_BULK_DELETE = 1000;
+
+    /** Body of every 404: constant, so a miss costs no string building. The identifiers are in the request itself. */
+    private static final String USER_NOT_FOUND = "User not found.";
+
     private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final Duration streamingTimeout;
+    /** Permits for concurrent range downloads, each of which holds an MVC async thread while it streams. */
+    private final Semaphore streamPermits;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ObjectMapper objectMapper,
+                          @Value("${users.streaming.timeout:PT10M}") Duration streamingTimeout,
+                          @Value("${users.streaming.max-concurrent:4}") int maxConcurrentStreams) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.streamingTimeout = streamingTimeout;
+        this.streamPermits = new Semaphore(maxConcurrentStreams);
     }
 
     /**
@@ -53,65 +85,109 @@ public class UserController {
     }
 
     /**
-     * Creates a new user.
+     * Validates a user creation request, logging the reason for any rejection.
      * @param user The user data from the request body.
-     * @return ResponseEntity with the created user and HTTP status 201, or an error response.
+     * @return The client-facing error message, or null if the request is valid.
      */
-    @PostMapping
-    public ResponseEntity<?> createUser(@RequestBody User user) {
-        String requestCin = (user != null && user.getCin() != null) ? user.getCin() : "null/not provided";
-        logger.info("Received request to create user. Provided CIN for request: {}", requestCin);
-
+    private String validateNewUser(User user) {
         // --- Request Object Null Check ---
         if (user == null) {
             logger.warn("Validation failed for createUser: User object in request body is null.");
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("User data cannot be null.");
+            return "User data cannot be null.";
         }
 
         // --- CIN Validation ---
         String cin = user.getCin();
         if (cin == null || cin.trim().isEmpty()) {
             logger.warn("Validation failed for createUser: CIN cannot be null or empty.");
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("CIN cannot be null or empty.");
+            return "CIN cannot be null or empty.";
         }
         if (cin.length() != 8) {
             logger.warn("Validation failed for createUser: CIN '{}' must be 8 characters long.", cin);
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("CIN must be 8 characters long.");
+            return "CIN must be 8 characters long.";
         }
         if (!isStringNumeric(cin)) {
             logger.warn("Validation failed for createUser: CIN '{}' must contain only numbers.", cin);
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("CIN must contain only numbers.");
+            return "CIN must contain only numbers.";
         }
 
         // --- Name Validation ---
         String name = user.getName();
         if (name == null || name.trim().isEmpty()) {
             logger.warn("Validation failed for createUser with CIN '{}': Name cannot be null or empty.", cin);
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Name cannot be null or empty.");
+            return "Name cannot be null or empty.";
         }
 
         // --- CinReleaseDate Validation ---
         if (user.getCinReleaseDate() == null) {
             logger.warn("Validation failed for createUser with CIN '{}': CIN Release Date cannot be null.", cin);
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("CIN Release Date cannot be null.");
+            return "CIN Release Date cannot be null.";
         }
         if (user.getCinReleaseDate().isAfter(LocalDate.now())) { // Good addition!
             logger.warn("Validation failed for createUser with CIN '{}': CIN Release Date cannot be in the future.", cin);
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("CIN Release Date cannot be in the future.");
+            return "CIN Release Date cannot be in the future.";
+        }
+        return null;
+    }
+
+    /**
+     * Validates the parameters of a lookup by CIN and release date, logging the reason for any rejection.
+     * @param cin The user's CIN (path variable).
+     * @param releaseDate The release date of the CIN.
+     * @return The client-facing error message, or null if the parameters are valid.
+     */
+    private String validateLookup(String cin, LocalDate releaseDate) {
+        // --- CIN PathVariable Validation ---
+        if (cin == null || cin.trim().isEmpty() || cin.length() != 8 || !isStringNumeric(cin)) {
+            logger.warn("Validation failed for getUserByCinAndReleaseDate: Invalid CIN format in URL path variable '{}'.", cin);
+            return "Invalid CIN format in URL.";
+        }
+        // --- ReleaseDate RequestParam Validation (now this will be hit if param is missing) ---
+        if (releaseDate == null) {
+            logger.warn("Validation failed for getUserByCinAndReleaseDate with CIN '{}': Release Date parameter ('releaseDate') cannot be null.", cin);
+            return "Release Date parameter ('releaseDate') cannot be null.";
+        }
+        return null;
+    }
+
+    /**
+     * Creates a new user.
+     * @param user The user data from the request body.
+     * @return ResponseEntity with the created user and HTTP status 201, or an error response.
+     */
+    @PostMapping
+    public ResponseEntity<?> createUser(@RequestBody User user) {
+        String requestCin = (user != null && user.getCin() != null) ? user.getCin() : "null/not provided";
+        logger.info("Received request to create user. Provided CIN for request: {}", requestCin);
+
+        UserRequestPhaseEvent validation = new UserRequestPhaseEvent("createUser", "validation");
+        validation.begin();
+        String validationError = validateNewUser(user);
+        validation.finish(user != null ? user.getCin() : null);
+        if (validationError != null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(validationError);
         }
+        String cin = user.getCin();
 
+        UserRequestPhaseEvent service = new UserRequestPhaseEvent("createUser", "service");
+        service.begin();
         try {
-            User savedUser = userService.createUser(user);
-            return new ResponseEntity<>(savedUser, HttpStatus.CREATED);
-        } catch (IllegalArgumentException e) { // From service for duplicate CIN
-            logger.warn("Conflict while creating user with CIN '{}': {}", cin, e.getMessage());
-            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+            UserCreationResult result = userService.tryCreateUser(user);
+            if (result instanceof UserCreationResult.Created created) {
+                return new ResponseEntity<>(created.user(), HttpStatus.CREATED);
+            }
+            // Duplicate CIN is reported as a value by the service, no exception involved
+            UserCreationResult.DuplicateCin duplicate = (UserCreationResult.DuplicateCin) result;
+            logger.warn("Conflict while creating user with CIN '{}': CIN already exists.", cin);
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(duplicate.message());
         } catch (jakarta.validation.ConstraintViolationException cve) {
             logger.warn("Constraint violation during persistence for CIN");
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("message", "Data validation failed during save."));
         } catch (Exception e) { // Catch other unexpected exceptions
             logger.error("Unexpected error creating user with CIN '{}': {}", requestCin, e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An unexpected error occurred. Please try again later.");
+        } finally {
+            service.finish(cin);
         }
     }
 
@@ -129,26 +205,197 @@ public class UserController {
 
         logger.info("Received request to get user by CIN: {} and ReleaseDate: {}", cin, (releaseDate != null ? releaseDate : "null"));
 
-        // --- CIN PathVariable Validation ---
-        if (cin == null || cin.trim().isEmpty() || cin.length() != 8 || !isStringNumeric(cin)) {
-            logger.warn("Validation failed for getUserByCinAndReleaseDate: Invalid CIN format in URL path variable '{}'.", cin);
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid CIN format in URL.");
-        }
-        // --- ReleaseDate RequestParam Validation (now this will be hit if param is missing) ---
-        if (releaseDate == null) {
-            logger.warn("Validation failed for getUserByCinAndReleaseDate with CIN '{}': Release Date parameter ('releaseDate') cannot be null.", cin);
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Release Date parameter ('releaseDate') cannot be null.");
+        UserRequestPhaseEvent validation = new UserRequestPhaseEvent("getUserByCinAndReleaseDate", "validation");
+        validation.begin();
+        String validationError = validateLookup(cin, releaseDate);
+        validation.finish(cin);
+        if (validationError != null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(validationError);
         }
 
+        UserRequestPhaseEvent service = new UserRequestPhaseEvent("getUserByCinAndReleaseDate", "service");
+        service.begin();
         try {
-            User user = userService.getUserByCinAndCinReleaseDate(cin, releaseDate);
-            return new ResponseEntity<>(user, HttpStatus.OK);
-        } catch (EntityNotFoundException e) {
-            logger.warn("User not found with CIN '{}' and ReleaseDate '{}': {}", cin, releaseDate, e.getMessage());
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+            Optional<User> user = userService.findUserByCinAndCinReleaseDate(cin, releaseDate);
+            if (user.isPresent()) {
+                return new ResponseEntity<>(user.get(), HttpStatus.OK);
+            }
+            // A miss is a normal outcome here; keep it off the WARN level
+            logger.debug("User not found with CIN '{}' and ReleaseDate '{}'.", cin, releaseDate);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(USER_NOT_FOUND);
         } catch (Exception e) {
             logger.error("Error retrieving user by CIN '{}' and ReleaseDate '{}': {}", cin, releaseDate, e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error retrieving user.");
+        } finally {
+            service.finish(cin);
+        }
+    }
+
+    /**
+     * Streams all users whose CIN was released within a date range as a JSON array.
+     * Rows are written as they are read, so memory use does not depend on the size of the window.
+     * The whole download must finish within {@code users.streaming.timeout} (10 minutes by default),
+     * rather than the default async request timeout; on timeout the response is cut off mid-array.
+     * Each download holds a thread of the shared MVC async executor, so at most
+     * {@code users.streaming.max-concurrent} run at once (4 by default, below the executor's 8 core threads);
+     * further requests get 503 right away instead of queueing behind them while their own timeout runs.
+     * @param releasedFrom The first release date to include (request parameter, format YYYY-MM-DD).
+     * @param releasedTo The last release date to include (request parameter, format YYYY-MM-DD).
+     * @param request The current request, to set the streaming timeout and permit release on.
+     * @return ResponseEntity streaming the users with HTTP status 200, 503 if too many downloads are running,
+     *         or an error response.
+     */
+    @GetMapping // Example: /api/v1/users?releasedFrom=2023-01-01&releasedTo=2023-12-31
+    public ResponseEntity<?> getUsersReleasedBetween(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate releasedFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate releasedTo,
+            HttpServletRequest request) {
+
+        logger.info("Received request to get users released between {} and {}", releasedFrom, releasedTo);
+
+        if (releasedFrom == null || releasedTo == null) {
+            logger.warn("Validation failed for getUsersReleasedBetween: releasedFrom and releasedTo are required.");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Parameters 'releasedFrom' and 'releasedTo' are required.");
+        }
+        if (releasedFrom.isAfter(releasedTo)) {
+            logger.warn("Validation failed for getUsersReleasedBetween: releasedFrom {} is after releasedTo {}.", releasedFrom, releasedTo);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("'releasedFrom' cannot be after 'releasedTo'.");
+        }
+
+        if (!streamPermits.tryAcquire()) {
+            logger.warn("Rejected download of users released between {} and {}: concurrent download limit reached.",
+                    releasedFrom, releasedTo);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body("Too many downloads in progress. Please retry shortly.");
+        }
+        // Released once the async processing ends, also if it times out before the body is written
+        AsyncRequestSupport.onCompletion(request, streamPermits::release);
+        AsyncRequestSupport.setTimeout(request, streamingTimeout);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+                generator.writeStartArray();
+                userService.streamUsersReleasedBetween(releasedFrom, releasedTo, user -> {
+                    try {
+                        generator.writeObject(user);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Maps the outcome of an update or delete to a response.
+     * @param result The service outcome.
+     * @return 204 (with the new version as ETag after an update), 404 or 409.
+     */
+    private ResponseEntity<?> toModificationResponse(UserModificationResult result) {
+        if (result instanceof UserModificationResult.Applied applied) {
+            ResponseEntity.HeadersBuilder<?> noContent = ResponseEntity.noContent();
+            if (applied.version() != null) {
+                noContent.eTag(String.valueOf(applied.version()));
+            }
+            return noContent.build();
+        }
+        if (result instanceof UserModificationResult.NotFound) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(USER_NOT_FOUND);
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("User was modified by another request. Reload it and retry.");
+    }
+
+    /**
+     * Partially updates a user with a single UPDATE of the changed columns.
+     * @param id The ID of the user (path variable).
+     * @param patch The fields to change and the version the client last read.
+     * @return 204 with the new version as ETag, or an error response.
+     */
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> patchUser(@PathVariable Long id, @RequestBody UserPatch patch) {
+        logger.info("Received request to patch user with ID {}", id);
+
+        if (patch == null || patch.version() == null) {
+            logger.warn("Validation failed for patchUser with ID {}: version is required.", id);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Version is required for updates.");
+        }
+        if (patch.isEmpty()) {
+            logger.warn("Validation failed for patchUser with ID {}: no field to update.", id);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("At least one field must be provided.");
+        }
+        if (patch.name() != null && patch.name().trim().isEmpty()) {
+            logger.warn("Validation failed for patchUser with ID {}: Name cannot be empty.", id);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Name cannot be empty.");
+        }
+        if (patch.cinReleaseDate() != null && patch.cinReleaseDate().isAfter(LocalDate.now())) {
+            logger.warn("Validation failed for patchUser with ID {}: CIN Release Date cannot be in the future.", id);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("CIN Release Date cannot be in the future.");
+        }
+
+        try {
+            return toModificationResponse(userService.updateUser(id, patch));
+        } catch (Exception e) {
+            logger.error("Error patching user with ID {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error updating user.");
+        }
+    }
+
+    /**
+     * Deletes a user by ID with a single DELETE.
+     * @param id The ID of the user (path variable).
+     * @param version The version the client last read (optional); the delete is rejected if it is stale.
+     * @return 204, or an error response.
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> deleteUser(@PathVariable Long id, @RequestParam(required = false) Long version) {
+        logger.info("Received request to delete user with ID {}", id);
+        try {
+            return toModificationResponse(userService.deleteUser(id, version));
+        } catch (Exception e) {
+            logger.error("Error deleting user with ID {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error deleting user.");
+        }
+    }
+
+    /**
+     * Deletes a user by CIN with a single DELETE.
+     * @param cin The user's CIN (path variable).
+     * @return 204, or an error response.
+     */
+    @DeleteMapping("/cin/{cin}")
+    public ResponseEntity<?> deleteUserByCin(@PathVariable String cin) {
+        logger.info("Received request to delete user with CIN {}", cin);
+        if (cin == null || cin.length() != 8 || !isStringNumeric(cin)) {
+            logger.warn("Validation failed for deleteUserByCin: Invalid CIN format in URL path variable '{}'.", cin);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid CIN format in URL.");
+        }
+        try {
+            return toModificationResponse(userService.deleteUserByCin(cin));
+        } catch (Exception e) {
+            logger.error("Error deleting user with CIN {}: {}", cin, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error deleting user.");
+        }
+    }
+
+    /**
+     * Deletes several users with one DELETE ... WHERE id IN (...) statement.
+     * @param ids The IDs to delete (request parameter, e.g. ?ids=1,2,3); unknown IDs are ignored.
+     * @return 200 with the number of deleted users, or an error response.
+     */
+    @DeleteMapping(params = "ids") // Example: DELETE /api/v1/users?ids=1,2,3
+    public ResponseEntity<?> deleteUsers(@RequestParam List<Long> ids) {
+        logger.info("Received request to delete {} users", ids.size());
+        if (ids.isEmpty() || ids.size() > MAX_BULK_DELETE) {
+            logger.warn("Validation failed for deleteUsers: {} IDs requested.", ids.size());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Between 1 and " + MAX_BULK_DELETE + " IDs must be provided.");
+        }
+        try {
+            return ResponseEntity.ok(Map.of("deleted", userService.deleteUsers(new LinkedHashSet<>(ids))));
+        } catch (Exception e) {
+            logger.error("Error deleting {} users: {}", ids.size(), e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error deleting users.");
         }
     }
 }
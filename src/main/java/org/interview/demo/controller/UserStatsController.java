@@ -0,0 +1,33 @@
+package org.interview.demo.controller;
+
+import org.interview.demo.model.UserStats;
+import org.interview.demo.service.UserStatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST Controller for aggregate user statistics.
+ */
+@RestController
+@RequestMapping("/api/v1/users/stats")
+public class UserStatsController {
+
+    private final UserStatsService userStatsService;
+
+    @Autowired
+    public UserStatsController(UserStatsService userStatsService) {
+        this.userStatsService = userStatsService;
+    }
+
+    /**
+     * Returns user counts maintained incrementally in memory; no query is run against the users table.
+     * @return ResponseEntity with the statistics and HTTP status 200.
+     */
+    @GetMapping
+    public ResponseEntity<UserStats> getStats() {
+        return ResponseEntity.ok(userStatsService.getStats());
+    }
+}
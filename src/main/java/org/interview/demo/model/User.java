@@ -5,14 +5,21 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.DynamicUpdate;
 import java.time.LocalDate; // Import LocalDate
 
 @Entity
-@Table(name = "users")
+// The users table is range-partitioned by YEAR(cin_release_date) (see db/migration), and MySQL requires
+// the partitioning column in every unique key: hence the (cin, cin_release_date) unique constraint.
+// One user per CIN is enforced by the unpartitioned user_cins table instead (see V5).
+@Table(name = "users",
+        uniqueConstraints = @UniqueConstraint(name = "uk_users_cin_release", columnNames = {"cin", "cin_release_date"}),
+        indexes = @Index(name = "idx_users_cin", columnList = "cin"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @EqualsAndHashCode(of = {"id"})
+@DynamicUpdate // Entity updates only write the columns that changed
 public class User {
 
     @Id
@@ -22,7 +29,7 @@ public class User {
     @Column(nullable = false)
     private String name;
 
-    @Column(nullable = false, unique = true) // Assuming CIN string itself is still unique for a person
+    @Column(nullable = false) // Unique through user_cins, claimed by UserServiceImpl.tryCreateUser
     private String cin;
 
     @Column(nullable = false)
@@ -31,4 +38,15 @@ public class User {
     @Column(nullable = false)
     private boolean marriedStatus;
 
+    @Version // Optimistic locking; clients send it back on PATCH/DELETE
+    @Column(nullable = false) // Existing rows get 0 when the column is added
+    private Long version;
+
+    /**
+     * Creates a user without a version, which is assigned on first save.
+     */
+    public User(Long id, String name, String cin, LocalDate cinReleaseDate, boolean marriedStatus) {
+        this(id, name, cin, cinReleaseDate, marriedStatus, null);
+    }
+
 }
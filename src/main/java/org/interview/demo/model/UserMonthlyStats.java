@@ -0,0 +1,30 @@
+package org.interview.demo.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Persisted user counts for one CIN release month: the source of truth for the user statistics.
+ * Kept up to date by a trigger on the users table (see db/migration) and cached in memory by
+ * {@link org.interview.demo.service.UserStatsService}.
+ */
+@Entity
+@Table(name = "user_stats_monthly")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserMonthlyStats {
+
+    @Id
+    @Column(name = "release_month", length = 7) // ISO year-month, e.g. 2023-01
+    private String releaseMonth;
+
+    @Column(nullable = false)
+    private long marriedCount;
+
+    @Column(nullable = false)
+    private long unmarriedCount;
+
+}
@@ -0,0 +1,21 @@
+package org.interview.demo.model;
+
+import java.time.LocalDate;
+
+/**
+ * Partial update of a user, as sent to {@code PATCH /api/v1/users/{id}}.
+ * Null fields are left unchanged. The CIN is the user's identity and cannot be patched.
+ * @param name New name, or null.
+ * @param cinReleaseDate New CIN release date, or null.
+ * @param marriedStatus New marital status, or null.
+ * @param version The version the client last read; the update is rejected if it is stale.
+ */
+public record UserPatch(String name, LocalDate cinReleaseDate, Boolean marriedStatus, Long version) {
+
+    /**
+     * @return true if the patch changes no field.
+     */
+    public boolean isEmpty() {
+        return name == null && cinReleaseDate == null && marriedStatus == null;
+    }
+}
@@ -0,0 +1,18 @@
+package org.interview.demo.model;
+
+import java.util.Map;
+
+/**
+ * Aggregate user statistics returned by {@code GET /api/v1/users/stats}.
+ * @param totalUsers Number of users.
+ * @param married Number of married users.
+ * @param unmarried Number of unmarried users.
+ * @param issuancesByMonth CIN issuances per release month (ISO year-month), in ascending order.
+ * @param issuancesByYear CIN issuances per release year, in ascending order.
+ */
+public record UserStats(long totalUsers,
+                        long married,
+                        long unmarried,
+                        Map<String, Long> issuancesByMonth,
+                        Map<Integer, Long> issuancesByYear) {
+}
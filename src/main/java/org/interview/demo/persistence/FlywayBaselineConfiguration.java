@@ -0,0 +1,18 @@
+package org.interview.demo.persistence;
+
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Lets Flyway take over databases whose schema was created by Hibernate's ddl-auto before migrations existed.
+ * Such a database is baselined at version 0, so V1 (a no-op there) and every later migration still run.
+ */
+@Configuration
+public class FlywayBaselineConfiguration {
+
+    @Bean
+    public FlywayConfigurationCustomizer baselineExistingSchema() {
+        return configuration -> configuration.baselineOnMigrate(true).baselineVersion("0");
+    }
+}
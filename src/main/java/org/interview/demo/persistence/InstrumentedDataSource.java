@@ -0,0 +1,177 @@
+package org.interview.demo.persistence;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.interview.demo.profiling.ConnectionAcquireEvent;
+import org.interview.demo.profiling.TransactionCompletionEvent;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * DataSource wrapper that counts and times every JDBC statement execution.
+ *
+ * Each execution increments the per-thread {@link StatementCounter} and is recorded in the
+ * {@code db.statements} timer. Executions slower than the threshold are counted in
+ * {@code db.statements.slow} and logged at WARN with their SQL. Bind parameters are never
+ * logged, and literals in the SQL text are replaced with '?'.
+ *
+ * Connection checkouts and commits/rollbacks are also recorded as JFR events
+ * ({@link ConnectionAcquireEvent}, {@link TransactionCompletionEvent}), so a recording can tell
+ * the pool wait and the commit round trip apart from the statements of a request.
+ */
+public class InstrumentedDataSource extends DelegatingDataSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(InstrumentedDataSource.class);
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMERIC_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+
+    private final Timer statementTimer;
+    private final Counter slowStatements;
+    private final long slowThresholdNanos;
+
+    public InstrumentedDataSource(DataSource target, MeterRegistry meterRegistry, Duration slowThreshold) {
+        super(target);
+        this.statementTimer = Timer.builder("db.statements")
+                .description("JDBC statement executions")
+                .register(meterRegistry);
+        this.slowStatements = Counter.builder("db.statements.slow")
+                .description("JDBC statement executions slower than the slow-query threshold")
+                .register(meterRegistry);
+        this.slowThresholdNanos = slowThreshold.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        ConnectionAcquireEvent event = new ConnectionAcquireEvent();
+        event.begin();
+        Connection connection = null;
+        try {
+            connection = super.getConnection();
+        } finally {
+            event.finish(connection != null);
+        }
+        return wrap(connection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        ConnectionAcquireEvent event = new ConnectionAcquireEvent();
+        event.begin();
+        Connection connection = null;
+        try {
+            connection = super.getConnection(username, password);
+        } finally {
+            event.finish(connection != null);
+        }
+        return wrap(connection);
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    /**
+     * Replaces string and numeric literals with '?' so values never reach the logs.
+     * @param sql The SQL text.
+     * @return The redacted SQL.
+     */
+    static String redact(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        String withoutStrings = STRING_LITERAL.matcher(sql).replaceAll("?");
+        return NUMERIC_LITERAL.matcher(withoutStrings).replaceAll("?");
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ((name.equals("commit") || name.equals("rollback")) && (args == null || args.length == 0)) {
+                TransactionCompletionEvent event = new TransactionCompletionEvent(name);
+                event.begin();
+                try {
+                    return InstrumentedDataSource.invoke(target, method, args);
+                } finally {
+                    event.finish();
+                }
+            }
+            Object result = InstrumentedDataSource.invoke(target, method, args);
+            if (result instanceof Statement statement) {
+                // prepareStatement/prepareCall carry the SQL up front; createStatement passes it on execute
+                String sql = (args != null && args.length > 0 && args[0] instanceof String text) ? text : null;
+                Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                        : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+                return Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(),
+                        new Class<?>[]{type}, new StatementHandler(statement, sql));
+            }
+            return result;
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        private final String preparedSql;
+
+        StatementHandler(Statement target, String preparedSql) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().startsWith("execute")) {
+                return InstrumentedDataSource.invoke(target, method, args);
+            }
+            long start = System.nanoTime();
+            try {
+                return InstrumentedDataSource.invoke(target, method, args);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                StatementCounter.increment();
+                statementTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                if (elapsed > slowThresholdNanos) {
+                    slowStatements.increment();
+                    String sql = preparedSql != null ? preparedSql
+                            : (args != null && args.length > 0 && args[0] instanceof String text) ? text : null;
+                    logger.warn("Slow SQL statement ({} ms): {}", elapsed / 1_000_000, redact(sql));
+                }
+            }
+        }
+    }
+}
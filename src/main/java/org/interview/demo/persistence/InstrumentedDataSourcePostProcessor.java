@@ -0,0 +1,35 @@
+package org.interview.demo.persistence;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Wraps the application's DataSource in an {@link InstrumentedDataSource} once it is fully configured.
+ */
+@Component
+public class InstrumentedDataSourcePostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final Duration slowThreshold;
+
+    public InstrumentedDataSourcePostProcessor(ObjectProvider<MeterRegistry> meterRegistry,
+                                               @Value("${persistence.slow-query-threshold:PT0.5S}") Duration slowThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.slowThreshold = slowThreshold;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof InstrumentedDataSource)) {
+            return new InstrumentedDataSource(dataSource, meterRegistry.getIfAvailable(SimpleMeterRegistry::new), slowThreshold);
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,58 @@
+package org.interview.demo.persistence;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * Records how many JDBC statements each HTTP request executed ({@code http.server.requests.db.statements})
+ * and warns about requests above the threshold, which usually point to an N+1 query pattern.
+ */
+@Component
+public class StatementCountFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementCountFilter.class);
+
+    private final DistributionSummary statementsPerRequest;
+    private final long warnThreshold;
+
+    @Autowired
+    public StatementCountFilter(ObjectProvider<MeterRegistry> meterRegistry,
+                                @Value("${persistence.statements-per-request.warn-threshold:10}") long warnThreshold) {
+        // Web test slices have no meter registry; fall back to a local one there
+        this.statementsPerRequest = DistributionSummary.builder("http.server.requests.db.statements")
+                .description("JDBC statements executed per HTTP request")
+                .register(meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+        this.warnThreshold = warnThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long before = StatementCounter.current();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long executed = StatementCounter.current() - before;
+            statementsPerRequest.record(executed);
+            if (executed > warnThreshold) {
+                // The URI is not logged because it may contain a CIN
+                logger.warn("{} request executed {} SQL statements (threshold {})", request.getMethod(), executed, warnThreshold);
+            }
+        }
+    }
+}
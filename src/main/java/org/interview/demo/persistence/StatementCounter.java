@@ -0,0 +1,25 @@
+package org.interview.demo.persistence;
+
+/**
+ * Per-thread count of JDBC statements executed through the {@link InstrumentedDataSource}.
+ * The count only ever grows; callers measure a block of work as the difference between two reads,
+ * so nested measurements (a request around a test assertion, for example) do not interfere.
+ */
+public final class StatementCounter {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    private StatementCounter() {
+    }
+
+    static void increment() {
+        COUNT.get()[0]++;
+    }
+
+    /**
+     * @return The number of statements executed so far on the current thread.
+     */
+    public static long current() {
+        return COUNT.get()[0];
+    }
+}
@@ -0,0 +1,107 @@
+package org.interview.demo.persistence;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps yearly partitions of the users table created ahead of time.
+ *
+ * The table is range-partitioned by YEAR(cin_release_date) with a trailing {@code p_future} catch-all
+ * (see V2__partition_users_by_cin_release_year.sql). Each run splits the missing yearly partitions up to
+ * {@code users.partitions.years-ahead} years from now out of {@code p_future}. Release dates are never in
+ * the future, so {@code p_future} is empty and the split moves no rows.
+ */
+@Component
+public class UserPartitionMaintenance {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserPartitionMaintenance.class);
+
+    private static final Pattern YEARLY_PARTITION = Pattern.compile("p(\\d{4})");
+    static final String FUTURE_PARTITION = "p_future";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int yearsAhead;
+    private final Clock clock;
+
+    @Autowired
+    public UserPartitionMaintenance(JdbcTemplate jdbcTemplate,
+                                    @Value("${users.partitions.years-ahead:2}") int yearsAhead) {
+        this(jdbcTemplate, yearsAhead, Clock.systemDefaultZone());
+    }
+
+    UserPartitionMaintenance(JdbcTemplate jdbcTemplate, int yearsAhead, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.yearsAhead = yearsAhead;
+        this.clock = clock;
+    }
+
+    /**
+     * Runs {@link #ensureUpcomingPartitions()} at startup and then on {@code users.partitions.maintenance-cron}.
+     * Failures are logged and retried on the next run rather than thrown: a missing ALTER privilege, a lock
+     * timeout or another instance splitting the same partition first must not stop the application from starting,
+     * and partitions are created {@code users.partitions.years-ahead} years early, so a missed run costs nothing.
+     * Returns nothing, as the return value of an event listener would be published as an event.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${users.partitions.maintenance-cron:0 0 3 1 * *}")
+    public void maintainPartitions() {
+        try {
+            ensureUpcomingPartitions();
+        } catch (RuntimeException e) {
+            logger.warn("Users partition maintenance failed, will retry on the next run: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Adds the missing yearly partitions. Safe to run repeatedly; does nothing if the table is not partitioned.
+     * @return The names of the partitions that were added.
+     */
+    public List<String> ensureUpcomingPartitions() {
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT partition_name FROM information_schema.partitions "
+                        + "WHERE table_schema = DATABASE() AND table_name = 'users' AND partition_name IS NOT NULL",
+                String.class);
+        if (!partitions.contains(FUTURE_PARTITION)) {
+            logger.info("Table users is not range-partitioned with {}, skipping partition maintenance", FUTURE_PARTITION);
+            return List.of();
+        }
+
+        int lastYear = Integer.MIN_VALUE;
+        for (String partition : partitions) {
+            Matcher matcher = YEARLY_PARTITION.matcher(partition);
+            if (matcher.matches()) {
+                lastYear = Math.max(lastYear, Integer.parseInt(matcher.group(1)));
+            }
+        }
+        int targetYear = Year.now(clock).getValue() + yearsAhead;
+        int firstMissing = (lastYear == Integer.MIN_VALUE) ? Year.now(clock).getValue() : lastYear + 1;
+
+        List<String> added = new ArrayList<>();
+        for (int year = firstMissing; year <= targetYear; year++) {
+            String name = "p" + year;
+            jdbcTemplate.execute("ALTER TABLE users REORGANIZE PARTITION " + FUTURE_PARTITION + " INTO ("
+                    + "PARTITION " + name + " VALUES LESS THAN (" + (year + 1) + "), "
+                    + "PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN MAXVALUE)");
+            added.add(name);
+        }
+        if (!added.isEmpty()) {
+            logger.info("Added users partitions {}", added);
+        }
+        return added;
+    }
+}
@@ -0,0 +1,49 @@
+package org.interview.demo.profiling;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+
+/**
+ * Pseudonymises CINs for profiling data.
+ * A plain hash of an 8-digit CIN can be reversed by brute force, so CINs are keyed with
+ * an HMAC whose key is generated per process and never leaves it: hashes correlate within
+ * one recording but cannot be mapped back to a CIN.
+ */
+public final class CinHasher {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte[] PROCESS_KEY = new byte[32];
+
+    static {
+        new SecureRandom().nextBytes(PROCESS_KEY);
+    }
+
+    private static final ThreadLocal<Mac> MAC = ThreadLocal.withInitial(() -> {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(PROCESS_KEY, ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    });
+
+    private CinHasher() {
+    }
+
+    /**
+     * @param cin The CIN to pseudonymise, may be null.
+     * @return The first 8 bytes of the keyed hash as hex, or null if the CIN is null.
+     */
+    public static String hash(String cin) {
+        if (cin == null) {
+            return null;
+        }
+        byte[] digest = MAC.get().doFinal(cin.getBytes(StandardCharsets.US_ASCII));
+        return HexFormat.of().formatHex(digest, 0, 8);
+    }
+}
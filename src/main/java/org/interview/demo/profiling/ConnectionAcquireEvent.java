@@ -0,0 +1,37 @@
+package org.interview.demo.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event covering one connection checkout from the pool, i.e. the time spent waiting for Hikari.
+ * Inside a transaction the connection is taken when the transaction begins, before any repository call,
+ * so this wait does not show up in {@link UserRepositoryCallEvent}s.
+ */
+@Name("org.interview.demo.ConnectionAcquire")
+@Label("Connection Acquire")
+@Category({"MADANIA", "Persistence"})
+@Description("Time spent waiting for a JDBC connection from the pool")
+@StackTrace(false)
+public class ConnectionAcquireEvent extends Event {
+
+    @Label("Acquired")
+    @Description("False if the pool failed or timed out")
+    boolean acquired;
+
+    /**
+     * Ends the event and commits it if it passes the recording's threshold.
+     * @param acquired Whether a connection was obtained.
+     */
+    public void finish(boolean acquired) {
+        end();
+        if (shouldCommit()) {
+            this.acquired = acquired;
+            commit();
+        }
+    }
+}
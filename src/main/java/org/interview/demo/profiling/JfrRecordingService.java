@@ -0,0 +1,112 @@
+package org.interview.demo.profiling;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Manages a single, bounded, on-demand JFR recording.
+ * Recordings use the JDK "default" settings (designed for continuous production use) plus the
+ * application's own events, and are capped both in duration and in on-disk size.
+ */
+@Service
+public class JfrRecordingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JfrRecordingService.class);
+
+    private final Duration maxDuration;
+    private final long maxSizeBytes;
+
+    private Recording recording;
+
+    public JfrRecordingService(@Value("${profiling.jfr.max-duration:PT10M}") Duration maxDuration,
+                               @Value("${profiling.jfr.max-size-bytes:67108864}") long maxSizeBytes) {
+        this.maxDuration = maxDuration;
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    /**
+     * Starts a recording unless one is already running.
+     * @param requestedDuration How long to record; clamped to the configured maximum. Null means the maximum.
+     * @return true if a recording was started, false if one is already running.
+     * @throws IOException if the JFR configuration cannot be loaded.
+     */
+    public synchronized boolean start(Duration requestedDuration) throws IOException {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return false;
+        }
+        discard();
+
+        Duration duration = (requestedDuration == null || requestedDuration.compareTo(maxDuration) > 0)
+                ? maxDuration : requestedDuration;
+        try {
+            recording = new Recording(Configuration.getConfiguration("default"));
+        } catch (ParseException e) {
+            throw new IOException("Could not parse the JFR 'default' configuration", e);
+        }
+        recording.setName("madania-on-demand");
+        recording.enable(UserHttpExchangeEvent.class);
+        recording.enable(UserRequestPhaseEvent.class);
+        recording.enable(UserRepositoryCallEvent.class);
+        recording.enable(ConnectionAcquireEvent.class);
+        recording.enable(SessionFlushEvent.class);
+        recording.enable(TransactionCompletionEvent.class);
+        recording.setToDisk(true);
+        recording.setMaxSize(maxSizeBytes);
+        recording.setDuration(duration);
+        recording.start();
+        logger.info("Started JFR recording for at most {} / {} bytes", duration, maxSizeBytes);
+        return true;
+    }
+
+    /**
+     * Stops the current recording (if it has not already stopped on its own) and dumps it to a temporary file.
+     * The caller owns the returned file and must delete it.
+     * @return The .jfr file, or empty if no recording was started.
+     * @throws IOException if the recording cannot be written.
+     */
+    public synchronized Optional<Path> stop() throws IOException {
+        if (recording == null) {
+            return Optional.empty();
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        Path file = Files.createTempFile("madania-", ".jfr");
+        try {
+            recording.dump(file);
+        } finally {
+            discard();
+        }
+        logger.info("Stopped JFR recording, dumped {} bytes", Files.size(file));
+        return Optional.of(file);
+    }
+
+    /**
+     * @return true if a recording is currently running.
+     */
+    public synchronized boolean isRunning() {
+        return recording != null && recording.getState() == RecordingState.RUNNING;
+    }
+
+    @PreDestroy
+    synchronized void discard() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
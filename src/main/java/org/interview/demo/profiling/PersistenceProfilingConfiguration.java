@@ -0,0 +1,20 @@
+package org.interview.demo.profiling;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers {@link SessionFlushProfilingListener} on every Hibernate session.
+ * Connection checkouts and commits are timed by {@link org.interview.demo.persistence.InstrumentedDataSource}.
+ */
+@Configuration
+public class PersistenceProfilingConfiguration {
+
+    @Bean
+    public HibernatePropertiesCustomizer sessionFlushProfiling() {
+        return properties -> properties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER,
+                SessionFlushProfilingListener.class.getName());
+    }
+}
@@ -0,0 +1,40 @@
+package org.interview.demo.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event covering one Hibernate flush: dirty checking plus the INSERT/UPDATE/DELETE statements it issues.
+ * The flush of a {@code @Transactional} service method runs at commit, after its last repository call.
+ */
+@Name("org.interview.demo.SessionFlush")
+@Label("Session Flush")
+@Category({"MADANIA", "Persistence"})
+@Description("Duration of a Hibernate session flush")
+@StackTrace(false)
+public class SessionFlushEvent extends Event {
+
+    @Label("Entities")
+    int entityCount;
+
+    @Label("Collections")
+    int collectionCount;
+
+    /**
+     * Ends the event and commits it if it passes the recording's threshold.
+     * @param entityCount The number of entities the flush processed.
+     * @param collectionCount The number of collections the flush processed.
+     */
+    public void finish(int entityCount, int collectionCount) {
+        end();
+        if (shouldCommit()) {
+            this.entityCount = entityCount;
+            this.collectionCount = collectionCount;
+            commit();
+        }
+    }
+}
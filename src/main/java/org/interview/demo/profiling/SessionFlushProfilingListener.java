@@ -0,0 +1,27 @@
+package org.interview.demo.profiling;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Emits a {@link SessionFlushEvent} for every full flush of a Hibernate session.
+ * Hibernate creates one instance per session (see {@link PersistenceProfilingConfiguration}),
+ * and a session is confined to one thread, so the in-flight event needs no synchronization.
+ */
+public class SessionFlushProfilingListener implements SessionEventListener {
+
+    private transient SessionFlushEvent flush;
+
+    @Override
+    public void flushStart() {
+        flush = new SessionFlushEvent();
+        flush.begin();
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        if (flush != null) {
+            flush.finish(numberOfEntities, numberOfCollections);
+            flush = null;
+        }
+    }
+}
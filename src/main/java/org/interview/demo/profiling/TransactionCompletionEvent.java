@@ -0,0 +1,36 @@
+package org.interview.demo.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event covering one JDBC commit or rollback round trip, after Hibernate has flushed.
+ */
+@Name("org.interview.demo.TransactionCompletion")
+@Label("Transaction Completion")
+@Category({"MADANIA", "Persistence"})
+@Description("Duration of a JDBC commit or rollback")
+@StackTrace(false)
+public class TransactionCompletionEvent extends Event {
+
+    @Label("Action")
+    String action;
+
+    public TransactionCompletionEvent(String action) {
+        this.action = action;
+    }
+
+    /**
+     * Ends the event and commits it if it passes the recording's threshold.
+     */
+    public void finish() {
+        end();
+        if (shouldCommit()) {
+            commit();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.interview.demo.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event covering a whole /api/v1/users HTTP exchange, including JSON serialization
+ * of the response. Serialization time is this event minus its nested phase events.
+ * The request path is not recorded because it contains the CIN.
+ */
+@Name("org.interview.demo.UserHttpExchange")
+@Label("User HTTP Exchange")
+@Category({"MADANIA", "Users"})
+@Description("Duration of a full /api/v1/users request, including response serialization")
+@StackTrace(false)
+public class UserHttpExchangeEvent extends Event {
+
+    @Label("HTTP Method")
+    String method;
+
+    @Label("Status")
+    int status;
+
+    public UserHttpExchangeEvent(String method) {
+        this.method = method;
+    }
+
+    /**
+     * Ends the event and commits it if it passes the recording's threshold.
+     * @param status The HTTP response status.
+     */
+    public void finish(int status) {
+        end();
+        if (shouldCommit()) {
+            this.status = status;
+            commit();
+        }
+    }
+}
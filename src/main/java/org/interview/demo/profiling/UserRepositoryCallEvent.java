@@ -0,0 +1,45 @@
+package org.interview.demo.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event covering one {@link org.interview.demo.repository.UserRepository} call.
+ * Outside a transaction this includes the pool wait and the commit. Inside one (e.g. createUser),
+ * the connection is taken at transaction begin and the flush runs at commit, both outside this event:
+ * see {@link ConnectionAcquireEvent}, {@link SessionFlushEvent} and {@link TransactionCompletionEvent}.
+ */
+@Name("org.interview.demo.UserRepositoryCall")
+@Label("User Repository Call")
+@Category({"MADANIA", "Persistence"})
+@Description("Duration of a UserRepository call made by the service layer")
+@StackTrace(false)
+public class UserRepositoryCallEvent extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("CIN Hash")
+    @Description("Keyed hash of the CIN, see CinHasher")
+    String cinHash;
+
+    public UserRepositoryCallEvent(String method) {
+        this.method = method;
+    }
+
+    /**
+     * Ends the event and commits it if it passes the recording's threshold.
+     * @param cin The CIN the call is about, may be null.
+     */
+    public void finish(String cin) {
+        end();
+        if (shouldCommit()) {
+            cinHash = CinHasher.hash(cin);
+            commit();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.interview.demo.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event covering one phase (validation, service call) of a user API request.
+ * Stack traces are disabled to keep the event cheap enough to record continuously.
+ */
+@Name("org.interview.demo.UserRequestPhase")
+@Label("User Request Phase")
+@Category({"MADANIA", "Users"})
+@Description("Duration of one phase of a /api/v1/users request")
+@StackTrace(false)
+public class UserRequestPhaseEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("CIN Hash")
+    @Description("Keyed hash of the CIN, see CinHasher")
+    String cinHash;
+
+    public UserRequestPhaseEvent(String operation, String phase) {
+        this.operation = operation;
+        this.phase = phase;
+    }
+
+    /**
+     * Ends the event and commits it if it passes the recording's threshold.
+     * The CIN is only hashed when the event is actually committed.
+     * @param cin The CIN the request is about, may be null.
+     */
+    public void finish(String cin) {
+        end();
+        if (shouldCommit()) {
+            cinHash = CinHasher.hash(cin);
+            commit();
+        }
+    }
+}
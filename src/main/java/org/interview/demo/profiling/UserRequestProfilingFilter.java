@@ -0,0 +1,37 @@
+package org.interview.demo.profiling;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Emits a {@link UserHttpExchangeEvent} around every /api/v1/users request.
+ * When no JFR recording is running this costs a couple of field writes per request.
+ */
+@Component
+public class UserRequestProfilingFilter extends OncePerRequestFilter {
+
+    private static final String USERS_API_PREFIX = "/api/v1/users";
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + USERS_API_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        UserHttpExchangeEvent event = new UserHttpExchangeEvent(request.getMethod());
+        event.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            event.finish(response.getStatus());
+        }
+    }
+}
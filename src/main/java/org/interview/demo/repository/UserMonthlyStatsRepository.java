@@ -0,0 +1,12 @@
+package org.interview.demo.repository;
+
+import org.interview.demo.model.UserMonthlyStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository interface for the persisted per-month user counts.
+ */
+@Repository
+public interface UserMonthlyStatsRepository extends JpaRepository<UserMonthlyStats, String> {
+}
@@ -1,25 +1,40 @@
 package org.interview.demo.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.interview.demo.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for User entities.
  */
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
 
     /**
-     * Finds a user by their CIN.
-     * Used for uniqueness checks.
-     * @param cin The CIN to search for.
-     * @return An Optional containing the User if found, or empty otherwise.
+     * Claims a CIN for a new user in the user_cins table, whose primary key keeps CINs unique
+     * (see V5 in db/migration). Must run in the transaction that inserts the user: a concurrent
+     * claim of the same CIN waits for that transaction and then claims nothing.
+     * INSERT IGNORE reports a taken CIN as 0 rows instead of an error, which would roll the transaction back.
+     * @param cin The CIN of the new user.
+     * @param cinReleaseDate The release date of the new user's CIN.
+     * @return 1 if the CIN was claimed, 0 if another user already holds it.
      */
-    Optional<User> findByCin(String cin);
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO user_cins (cin, cin_release_date) VALUES (:cin, :cinReleaseDate)", nativeQuery = true)
+    int claimCin(@Param("cin") String cin, @Param("cinReleaseDate") LocalDate cinReleaseDate);
 
     /**
      * Finds a user by their CIN and CIN release date.
@@ -28,4 +43,85 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @return An Optional containing the User if found, or empty otherwise.
      */
     Optional<User> findByCinAndCinReleaseDate(String cin, LocalDate cinReleaseDate);
+
+    /**
+     * Streams users whose CIN was released within a date range, straight from the result set.
+     * The range condition is on the partitioning column, so MySQL only reads the matching yearly partitions.
+     * A fetch size of Integer.MIN_VALUE makes MySQL Connector/J stream rows instead of buffering them all.
+     * Must be consumed inside a transaction and closed; rows come in storage order.
+     * @param from The first release date to include.
+     * @param to The last release date to include.
+     * @return A stream of the matching users.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<User> streamByCinReleaseDateBetween(LocalDate from, LocalDate to);
+
+    /**
+     * Reads users in ID order, one keyset page at a time.
+     * Used to catch up on rows written after the lookup snapshot.
+     * @param id The last ID already read (exclusive).
+     * @return Up to 1000 users with a greater ID, in ascending ID order.
+     */
+    List<User> findTop1000ByIdGreaterThanOrderByIdAsc(Long id);
+
+    /**
+     * Reads users in (CIN, release date) order, one keyset page at a time, along the
+     * uk_users_cin_release index. Used to write the lookup snapshot without sorting in memory.
+     * @param cin The CIN of the last user already read ("" to start).
+     * @param cinReleaseDate The release date of the last user already read.
+     * @param pageable The page size (the page number must be 0).
+     * @return The next users after the given key, in ascending (CIN, release date) order.
+     */
+    @Query("SELECT u FROM User u WHERE u.cin > :cin OR (u.cin = :cin AND u.cinReleaseDate > :cinReleaseDate) "
+            + "ORDER BY u.cin ASC, u.cinReleaseDate ASC")
+    List<User> findPageAfterCinAndCinReleaseDate(@Param("cin") String cin,
+                                                 @Param("cinReleaseDate") LocalDate cinReleaseDate,
+                                                 Pageable pageable);
+
+    /**
+     * @return The highest user ID, or 0 if there are no users.
+     */
+    @Query("SELECT COALESCE(MAX(u.id), 0) FROM User u")
+    long findMaxId();
+
+    /**
+     * Deletes a user by ID with a single DELETE, without loading it first
+     * (unlike {@link #deleteById}).
+     * @param id The ID of the user to delete.
+     * @return The number of rows deleted.
+     */
+    @Modifying
+    @Query("DELETE FROM User u WHERE u.id = :id")
+    int deleteUserById(@Param("id") Long id);
+
+    /**
+     * Deletes a user by ID only if it is still at the expected version, with a single DELETE.
+     * @param id The ID of the user to delete.
+     * @param version The version the caller last read.
+     * @return The number of rows deleted: 0 if the user does not exist or the version is stale.
+     */
+    @Modifying
+    @Query("DELETE FROM User u WHERE u.id = :id AND u.version = :version")
+    int deleteUserByIdAndVersion(@Param("id") Long id, @Param("version") Long version);
+
+    /**
+     * Deletes a user by CIN with a single DELETE, without loading it first.
+     * @param cin The CIN of the user to delete.
+     * @return The number of rows deleted.
+     */
+    @Modifying
+    @Query("DELETE FROM User u WHERE u.cin = :cin")
+    int deleteUserByCin(@Param("cin") String cin);
+
+    /**
+     * Deletes all users with the given IDs in one DELETE ... WHERE id IN (...) statement.
+     * @param ids The IDs of the users to delete.
+     * @return The number of rows deleted.
+     */
+    @Modifying
+    @Query("DELETE FROM User u WHERE u.id IN :ids")
+    int deleteUsersByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,25 @@
+package org.interview.demo.repository;
+
+import org.interview.demo.model.User;
+import org.interview.demo.model.UserPatch;
+
+/**
+ * Custom {@link UserRepository} operations that need dynamically built statements.
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * Applies a partial update with a single UPDATE touching only the patched columns,
+     * without loading the entity first. The version is checked and incremented in the same statement.
+     * @param id The ID of the user to update.
+     * @param patch The fields to change and the expected version.
+     * @return The number of rows updated: 0 if the user does not exist or the version is stale, 1 otherwise.
+     */
+    int patch(Long id, UserPatch patch);
+
+    /**
+     * Removes a user from the persistence context, so streamed results do not accumulate in memory.
+     * @param user The managed user to detach.
+     */
+    void detach(User user);
+}
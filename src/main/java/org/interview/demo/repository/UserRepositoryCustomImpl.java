@@ -0,0 +1,46 @@
+package org.interview.demo.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+import org.interview.demo.model.User;
+import org.interview.demo.model.UserPatch;
+
+import java.time.LocalDate;
+
+/**
+ * Implementation of {@link UserRepositoryCustom}, picked up by Spring Data through the Impl suffix.
+ */
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int patch(Long id, UserPatch patch) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<User> update = cb.createCriteriaUpdate(User.class);
+        Root<User> root = update.from(User.class);
+
+        if (patch.name() != null) {
+            update.set(root.<String>get("name"), patch.name());
+        }
+        if (patch.cinReleaseDate() != null) {
+            update.set(root.<LocalDate>get("cinReleaseDate"), patch.cinReleaseDate());
+        }
+        if (patch.marriedStatus() != null) {
+            update.set(root.<Boolean>get("marriedStatus"), patch.marriedStatus());
+        }
+        update.set(root.<Long>get("version"), cb.sum(root.<Long>get("version"), 1L));
+        update.where(cb.equal(root.get("id"), id), cb.equal(root.get("version"), patch.version()));
+
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    public void detach(User user) {
+        entityManager.detach(user);
+    }
+}
@@ -0,0 +1,33 @@
+package org.interview.demo.service;
+
+import org.interview.demo.model.User;
+
+/**
+ * Outcome of a user creation attempt.
+ * A duplicate CIN is an expected business outcome, so it is returned as a value
+ * instead of being signalled with an exception.
+ */
+public sealed interface UserCreationResult {
+
+    /**
+     * The user was persisted.
+     * @param user The saved user, including its generated ID.
+     */
+    record Created(User user) implements UserCreationResult {
+    }
+
+    /**
+     * A user with the same CIN already exists; nothing was persisted.
+     * @param cin The conflicting CIN.
+     */
+    record DuplicateCin(String cin) implements UserCreationResult {
+
+        /**
+         * Builds the client-facing conflict message. Only called when the message is actually needed.
+         * @return The conflict message.
+         */
+        public String message() {
+            return "User with CIN " + cin + " already exists.";
+        }
+    }
+}
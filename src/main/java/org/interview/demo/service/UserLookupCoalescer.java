@@ -0,0 +1,112 @@
+package org.interview.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.interview.demo.model.User;
+import org.interview.demo.profiling.UserRepositoryCallEvent;
+import org.interview.demo.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Single-flight layer in front of {@link UserRepository#findByCinAndCinReleaseDate}.
+ * Concurrent lookups for the same (CIN, release date) share one in-flight query:
+ * the first caller executes it, the others wait on its result (or its failure).
+ * Nothing is cached; the in-flight entry is removed as soon as the query completes.
+ */
+@Component
+public class UserLookupCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserLookupCoalescer.class);
+
+    private record LookupKey(String cin, LocalDate cinReleaseDate) {
+    }
+
+    private final ConcurrentHashMap<LookupKey, CompletableFuture<Optional<User>>> inFlight = new ConcurrentHashMap<>();
+
+    private final UserRepository userRepository;
+    private final long timeoutMillis;
+    private final Counter executedQueries;
+    private final Counter coalescedQueries;
+
+    @Autowired
+    public UserLookupCoalescer(UserRepository userRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${users.lookup.coalescing.timeout-ms:2000}") long timeoutMillis) {
+        this.userRepository = userRepository;
+        this.timeoutMillis = timeoutMillis;
+        this.executedQueries = Counter.builder("users.lookup.queries")
+                .description("CIN lookups by whether they ran a DB query or joined an in-flight one")
+                .tag("outcome", "executed")
+                .register(meterRegistry);
+        this.coalescedQueries = Counter.builder("users.lookup.queries")
+                .description("CIN lookups by whether they ran a DB query or joined an in-flight one")
+                .tag("outcome", "coalesced")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Looks up a user, sharing the DB query with any identical lookup already in flight.
+     * Callers that join an in-flight query receive the same {@link User} instance and must not mutate it.
+     * @param cin The CIN to search for.
+     * @param cinReleaseDate The release date of the CIN.
+     * @return An Optional containing the User if found, or empty otherwise.
+     * @throws QueryTimeoutException if the shared query does not complete within the configured timeout.
+     */
+    public Optional<User> findByCinAndCinReleaseDate(String cin, LocalDate cinReleaseDate) {
+        LookupKey key = new LookupKey(cin, cinReleaseDate);
+        CompletableFuture<Optional<User>> own = new CompletableFuture<>();
+        CompletableFuture<Optional<User>> existing = inFlight.putIfAbsent(key, own);
+        if (existing != null) {
+            coalescedQueries.increment();
+            return await(existing, key);
+        }
+
+        executedQueries.increment();
+        UserRepositoryCallEvent event = new UserRepositoryCallEvent("findByCinAndCinReleaseDate");
+        event.begin();
+        try {
+            Optional<User> result = userRepository.findByCinAndCinReleaseDate(cin, cinReleaseDate);
+            own.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+            event.finish(cin);
+        }
+    }
+
+    private Optional<User> await(CompletableFuture<Optional<User>> shared, LookupKey key) {
+        try {
+            return shared.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("Timed out after {} ms waiting for in-flight lookup of CIN {}", timeoutMillis, key.cin());
+            throw new QueryTimeoutException("Timed out waiting for in-flight user lookup", e);
+        } catch (ExecutionException e) {
+            // Propagate the leader's failure unchanged to every waiter
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new DataRetrievalFailureException("In-flight user lookup failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataRetrievalFailureException("Interrupted while waiting for in-flight user lookup", e);
+        }
+    }
+}
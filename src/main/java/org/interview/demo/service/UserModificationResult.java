@@ -0,0 +1,27 @@
+package org.interview.demo.service;
+
+/**
+ * Outcome of an update or delete. Missing users and stale versions are expected outcomes,
+ * so they are returned as values instead of being signalled with exceptions.
+ */
+public sealed interface UserModificationResult {
+
+    /**
+     * The change was applied.
+     * @param version The user's new version after an update, or null after a delete.
+     */
+    record Applied(Long version) implements UserModificationResult {
+    }
+
+    /**
+     * No user matched.
+     */
+    record NotFound() implements UserModificationResult {
+    }
+
+    /**
+     * The user exists but was modified since the client read it.
+     */
+    record VersionConflict() implements UserModificationResult {
+    }
+}
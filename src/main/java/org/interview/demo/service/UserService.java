@@ -1,9 +1,12 @@
 package org.interview.demo.service;
 
 import org.interview.demo.model.User;
+import org.interview.demo.model.UserPatch;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List; // For future getAllUsers
-import java.util.Optional; // For future getUserById
+import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Service interface for User operations.
@@ -18,6 +21,14 @@ public interface UserService {
      */
     User createUser(User user);
 
+    /**
+     * Creates a new user without using exceptions for the duplicate case.
+     * @param user The user object to create.
+     * @return {@link UserCreationResult.Created} with the saved user, or
+     *         {@link UserCreationResult.DuplicateCin} if a user with the same CIN already exists.
+     */
+    UserCreationResult tryCreateUser(User user);
+
     /**
      * Retrieves a user by their CIN and CIN release date.
      * @param cin The user's CIN.
@@ -27,6 +38,15 @@ public interface UserService {
      */
     User getUserByCinAndCinReleaseDate(String cin, LocalDate cinReleaseDate);
 
+    /**
+     * Looks up a user by their CIN and CIN release date.
+     * A miss is a normal outcome and is reported as an empty Optional.
+     * @param cin The user's CIN.
+     * @param cinReleaseDate The release date of the CIN.
+     * @return An Optional containing the user if found, or empty otherwise.
+     */
+    Optional<User> findUserByCinAndCinReleaseDate(String cin, LocalDate cinReleaseDate);
+
     // --- Placeholder for other typical CRUD operations ---
     /**
      * Retrieves all users.
@@ -42,18 +62,44 @@ public interface UserService {
     // Optional<User> getUserById(Long id);
 
     /**
-     * Updates an existing user.
+     * Streams every user whose CIN was released within a date range to the consumer,
+     * without loading the whole result into memory.
+     * @param from The first release date to include.
+     * @param to The last release date to include.
+     * @param consumer Receives each user; it must not keep references to them.
+     * @return The number of users streamed.
+     */
+    long streamUsersReleasedBetween(LocalDate from, LocalDate to, Consumer<User> consumer);
+
+    /**
+     * Applies a partial update with one targeted UPDATE, without loading the user first.
      * @param id The ID of the user to update.
-     * @param userDetails The user object with updated details.
-     * @return The updated user.
-     * @throws jakarta.persistence.EntityNotFoundException if the user to update is not found.
+     * @param patch The fields to change and the version the client last read.
+     * @return {@link UserModificationResult.Applied} with the new version, {@link UserModificationResult.NotFound},
+     *         or {@link UserModificationResult.VersionConflict} if the user changed since it was read.
      */
-    // User updateUser(Long id, User userDetails);
+    UserModificationResult updateUser(Long id, UserPatch patch);
 
     /**
-     * Deletes a user by their ID.
+     * Deletes a user by their ID with one DELETE, without loading it first.
      * @param id The ID of the user to delete.
-     * @throws jakarta.persistence.EntityNotFoundException if the user to delete is not found.
+     * @param expectedVersion The version the client last read, or null to delete unconditionally.
+     * @return {@link UserModificationResult.Applied}, {@link UserModificationResult.NotFound},
+     *         or {@link UserModificationResult.VersionConflict} if the user changed since it was read.
+     */
+    UserModificationResult deleteUser(Long id, Long expectedVersion);
+
+    /**
+     * Deletes a user by their CIN with one DELETE, without loading it first.
+     * @param cin The CIN of the user to delete.
+     * @return {@link UserModificationResult.Applied} or {@link UserModificationResult.NotFound}.
+     */
+    UserModificationResult deleteUserByCin(String cin);
+
+    /**
+     * Deletes several users with a single DELETE statement.
+     * @param ids The IDs of the users to delete; unknown IDs are ignored.
+     * @return The number of users deleted.
      */
-    // void deleteUser(Long id);
+    int deleteUsers(Collection<Long> ids);
 }
@@ -2,7 +2,10 @@ package org.interview.demo.service;
 
 import jakarta.persistence.EntityNotFoundException;
 import org.interview.demo.model.User;
+import org.interview.demo.model.UserPatch;
+import org.interview.demo.profiling.UserRepositoryCallEvent;
 import org.interview.demo.repository.UserRepository;
+import org.interview.demo.snapshot.UserSnapshotStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -11,8 +14,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDate;
-// import java.util.List; // For future getAllUsers
-// import java.util.Optional; // For future getUserById
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Implementation of the UserService interface.
@@ -23,54 +30,182 @@ public class UserServiceImpl implements UserService {
     private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
 
     private final UserRepository userRepository;
+    private final UserLookupCoalescer userLookupCoalescer;
+    private final UserStatsService userStatsService;
+    private final UserSnapshotStore userSnapshotStore;
 
     @Autowired
-    public UserServiceImpl(UserRepository userRepository) {
+    public UserServiceImpl(UserRepository userRepository,
+                           UserLookupCoalescer userLookupCoalescer,
+                           UserStatsService userStatsService,
+                           UserSnapshotStore userSnapshotStore) {
         this.userRepository = userRepository;
+        this.userLookupCoalescer = userLookupCoalescer;
+        this.userStatsService = userStatsService;
+        this.userSnapshotStore = userSnapshotStore;
     }
 
     @Override
     @Transactional
     public User createUser(User user) {
+        UserCreationResult result = tryCreateUser(user);
+        if (result instanceof UserCreationResult.DuplicateCin duplicate) {
+            throw new IllegalArgumentException(duplicate.message());
+        }
+        return ((UserCreationResult.Created) result).user();
+    }
+
+    @Override
+    @Transactional
+    public UserCreationResult tryCreateUser(User user) {
         logger.info("Attempting to create user. CIN: {}, ReleaseDate: {}", user.getCin(), user.getCinReleaseDate());
 
-        // Check if a user with the same CIN string already exists (as per current DB unique constraint on CIN)
-        if (userRepository.findByCin(user.getCin()).isPresent()) {
-            String errorMessage = "User with CIN " + user.getCin() + " already exists.";
-            logger.warn("User creation failed: {}", errorMessage);
-            throw new IllegalArgumentException(errorMessage);
+        // Claim the CIN in user_cins, whose primary key keeps CINs unique across the partitioned users table.
+        // A concurrent creation with the same CIN waits on the claim and then gets 0 rows, so only one can win.
+        UserRepositoryCallEvent claimCinEvent = new UserRepositoryCallEvent("claimCin");
+        claimCinEvent.begin();
+        boolean cinExists;
+        try {
+            cinExists = userRepository.claimCin(user.getCin(), user.getCinReleaseDate()) == 0;
+        } finally {
+            claimCinEvent.finish(user.getCin());
+        }
+        if (cinExists) {
+            logger.warn("User creation failed: user with CIN {} already exists.", user.getCin());
+            return new UserCreationResult.DuplicateCin(user.getCin());
         }
 
         // You might also want a business rule to check if the exact combination of
         // CIN and CinReleaseDate already exists, if that's a unique business key.
         // Example:
         // if (userRepository.findByCinAndCinReleaseDate(user.getCin(), user.getCinReleaseDate()).isPresent()) {
-        //     String errorMessage = "User with CIN " + user.getCin() + " and ReleaseDate " + user.getCinReleaseDate() + " already exists.";
-        //     logger.warn("User creation failed: {}", errorMessage);
-        //     throw new IllegalArgumentException(errorMessage);
+        //     logger.warn("User creation failed: user with CIN {} and ReleaseDate {} already exists.", user.getCin(), user.getCinReleaseDate());
+        //     return new UserCreationResult.DuplicateCin(user.getCin());
         // }
 
         logger.debug("Saving new user with CIN: {}", user.getCin());
-        User savedUser = userRepository.save(user);
+        user.setVersion(null); // Server-assigned; a client-supplied value would make save() merge instead of persist
+        UserRepositoryCallEvent saveEvent = new UserRepositoryCallEvent("save");
+        saveEvent.begin();
+        User savedUser;
+        try {
+            savedUser = userRepository.save(user);
+        } finally {
+            saveEvent.finish(user.getCin());
+        }
+        userStatsService.recordCreated(savedUser);
         logger.info("Successfully created user with ID {} and CIN {}", savedUser.getId(), savedUser.getCin());
-        return savedUser;
+        return new UserCreationResult.Created(savedUser);
     }
 
+    // Lookups are intentionally not @Transactional: callers waiting on a coalesced query
+    // must not hold a pooled connection. The repository call opens its own read-only transaction.
     @Override
-    @Transactional(readOnly = true)
     public User getUserByCinAndCinReleaseDate(String cin, LocalDate cinReleaseDate) {
+        return findUserByCinAndCinReleaseDate(cin, cinReleaseDate)
+                .orElseThrow(() -> new EntityNotFoundException(
+                        "User not found with CIN: " + cin + " and Release Date: " + cinReleaseDate));
+    }
+
+    @Override
+    public Optional<User> findUserByCinAndCinReleaseDate(String cin, LocalDate cinReleaseDate) {
         logger.debug("Attempting to find user by CIN: {} and CinReleaseDate: {}", cin, cinReleaseDate);
-        return userRepository.findByCinAndCinReleaseDate(cin, cinReleaseDate)
-                .orElseThrow(() -> {
-                    String errorMessage = "User not found with CIN: " + cin + " and Release Date: " + cinReleaseDate;
-                    logger.warn(errorMessage);
-                    return new EntityNotFoundException(errorMessage);
-                });
+        Optional<User> fromSnapshot = userSnapshotStore.find(cin, cinReleaseDate);
+        if (fromSnapshot.isPresent()) {
+            return fromSnapshot;
+        }
+        Optional<User> user = userLookupCoalescer.findByCinAndCinReleaseDate(cin, cinReleaseDate);
+        if (user.isEmpty()) {
+            logger.debug("No user found with CIN: {} and Release Date: {}", cin, cinReleaseDate);
+        }
+        return user;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long streamUsersReleasedBetween(LocalDate from, LocalDate to, Consumer<User> consumer) {
+        logger.info("Streaming users with CIN released between {} and {}", from, to);
+        long count = 0;
+        try (Stream<User> users = userRepository.streamByCinReleaseDateBetween(from, to)) {
+            Iterator<User> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                User user = iterator.next();
+                consumer.accept(user);
+                userRepository.detach(user);
+                count++;
+            }
+        }
+        logger.info("Streamed {} users with CIN released between {} and {}", count, from, to);
+        return count;
+    }
+
+    @Override
+    @Transactional
+    public UserModificationResult updateUser(Long id, UserPatch patch) {
+        logger.info("Attempting to patch user with ID {} at version {}", id, patch.version());
+        if (userRepository.patch(id, patch) == 0) {
+            return missOrConflict(id);
+        }
+        userSnapshotStore.invalidate(List.of(id)); // The stats summary is adjusted by a trigger on users
+        logger.info("Successfully patched user with ID {}", id);
+        return new UserModificationResult.Applied(patch.version() + 1);
+    }
+
+    @Override
+    @Transactional
+    public UserModificationResult deleteUser(Long id, Long expectedVersion) {
+        logger.info("Attempting to delete user with ID {} (expected version: {})", id, expectedVersion);
+        int deleted = (expectedVersion == null)
+                ? userRepository.deleteUserById(id)
+                : userRepository.deleteUserByIdAndVersion(id, expectedVersion);
+        if (deleted == 0) {
+            return expectedVersion == null ? new UserModificationResult.NotFound() : missOrConflict(id);
+        }
+        userSnapshotStore.invalidate(List.of(id));
+        return new UserModificationResult.Applied(null);
+    }
+
+    @Override
+    @Transactional
+    public UserModificationResult deleteUserByCin(String cin) {
+        logger.info("Attempting to delete user with CIN {}", cin);
+        if (userRepository.deleteUserByCin(cin) == 0) {
+            return new UserModificationResult.NotFound();
+        }
+        userSnapshotStore.invalidateCin(cin);
+        return new UserModificationResult.Applied(null);
+    }
+
+    @Override
+    @Transactional
+    public int deleteUsers(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int deleted = userRepository.deleteUsersByIdIn(ids);
+        logger.info("Deleted {} of {} requested users", deleted, ids.size());
+        if (deleted > 0) {
+            userSnapshotStore.invalidate(ids);
+        }
+        return deleted;
+    }
+
+    /**
+     * Tells a missing user from a stale version after a conditional statement matched no row.
+     * Only runs on the failure path, so successful writes stay a single statement.
+     */
+    private UserModificationResult missOrConflict(Long id) {
+        if (userRepository.existsById(id)) {
+            logger.warn("Version conflict while modifying user with ID {}", id);
+            // The client's version may come from a stale snapshot (e.g. after another instance's change):
+            // make sure the reload it is told to do reads the database
+            userSnapshotStore.invalidate(List.of(id));
+            return new UserModificationResult.VersionConflict();
+        }
+        return new UserModificationResult.NotFound();
     }
 
     // --- Implementations for other UserService methods would go here ---
     // public List<User> getAllUsers() { ... }
     // public Optional<User> getUserById(Long id) { ... }
-    // public User updateUser(Long id, User userDetails) { ... }
-    // public void deleteUser(Long id) { ... }
 }
@@ -0,0 +1,137 @@
+package org.interview.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import org.interview.demo.model.User;
+import org.interview.demo.model.UserMonthlyStats;
+import org.interview.demo.model.UserStats;
+import org.interview.demo.repository.UserMonthlyStatsRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves user statistics from the {@code user_stats_monthly} summary table instead of aggregating
+ * the users table on every read.
+ *
+ * The summary table is the source of truth: triggers on users (V3 and V4 in db/migration) adjust it
+ * in the same transaction as every insert, update and delete, so no committed change is lost on a crash,
+ * changes made without loading the rows are counted, and the writes of every instance add up.
+ * This class only caches the table in memory (one pair of {@link LongAdder}s per CIN release month plus
+ * global totals), reloaded every {@code users.stats.refresh-interval-ms}. Creations committed through this
+ * instance are also added to the cache right away. Reads cost O(number of release months) and never query the database.
+ *
+ * {@code /stats} is therefore eventually consistent: updates and deletes, and creations made by other
+ * instances, show up after at most one refresh interval, and never drift after that.
+ */
+@Service
+public class UserStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserStatsService.class);
+
+    private static final class MonthCounters {
+        final LongAdder married = new LongAdder();
+        final LongAdder unmarried = new LongAdder();
+    }
+
+    /** One consistent set of counters; replaced as a whole on every refresh. */
+    private static final class Aggregates {
+        final ConcurrentHashMap<YearMonth, MonthCounters> byMonth = new ConcurrentHashMap<>();
+        final LongAdder total = new LongAdder();
+        final LongAdder married = new LongAdder();
+
+        void add(YearMonth month, boolean isMarried, long count) {
+            if (count == 0) {
+                return;
+            }
+            MonthCounters counters = byMonth.computeIfAbsent(month, m -> new MonthCounters());
+            (isMarried ? counters.married : counters.unmarried).add(count);
+            total.add(count);
+            if (isMarried) {
+                married.add(count);
+            }
+        }
+    }
+
+    private volatile Aggregates aggregates = new Aggregates();
+
+    private final UserMonthlyStatsRepository userMonthlyStatsRepository;
+
+    @Autowired
+    public UserStatsService(UserMonthlyStatsRepository userMonthlyStatsRepository) {
+        this.userMonthlyStatsRepository = userMonthlyStatsRepository;
+    }
+
+    /**
+     * Loads the cache from the summary table at startup.
+     */
+    @PostConstruct
+    public void load() {
+        refresh();
+        logger.info("Loaded user statistics: {} users over {} release months",
+                aggregates.total.sum(), aggregates.byMonth.size());
+    }
+
+    /**
+     * Reloads the cache from the summary table, picking up the writes of other instances.
+     */
+    @Scheduled(fixedDelayString = "${users.stats.refresh-interval-ms:5000}",
+            initialDelayString = "${users.stats.refresh-interval-ms:5000}")
+    public void refresh() {
+        Aggregates refreshed = new Aggregates();
+        for (UserMonthlyStats stats : userMonthlyStatsRepository.findAll()) {
+            YearMonth month = YearMonth.parse(stats.getReleaseMonth());
+            refreshed.add(month, true, stats.getMarriedCount());
+            refreshed.add(month, false, stats.getUnmarriedCount());
+        }
+        aggregates = refreshed;
+    }
+
+    /**
+     * Adds a newly created user to the cache so this instance's reads reflect it before the next refresh.
+     * The summary table itself is updated by the insert trigger. Inside a transaction the cache update
+     * is deferred until commit, so rolled-back creations are never shown.
+     * @param user The saved user.
+     */
+    public void recordCreated(User user) {
+        YearMonth month = YearMonth.from(user.getCinReleaseDate());
+        boolean isMarried = user.isMarriedStatus();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aggregates.add(month, isMarried, 1);
+                }
+            });
+        } else {
+            aggregates.add(month, isMarried, 1);
+        }
+    }
+
+    /**
+     * @return The current statistics, read from the in-memory cache.
+     */
+    public UserStats getStats() {
+        Map<String, Long> issuancesByMonth = new TreeMap<>();
+        Map<Integer, Long> issuancesByYear = new TreeMap<>();
+        Aggregates current = aggregates;
+        current.byMonth.forEach((month, counters) -> {
+            long issued = counters.married.sum() + counters.unmarried.sum();
+            issuancesByMonth.put(month.toString(), issued);
+            issuancesByYear.merge(month.getYear(), issued, Long::sum);
+        });
+        long totalUsers = current.total.sum();
+        long marriedUsers = current.married.sum();
+        return new UserStats(totalUsers, marriedUsers, totalUsers - marriedUsers, issuancesByMonth, issuancesByYear);
+    }
+}
@@ -0,0 +1,362 @@
+package org.interview.demo.snapshot;
+
+import org.interview.demo.model.User;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Read-only, memory-mapped snapshot of the user lookup data.
+ *
+ * File layout (big-endian):
+ * <pre>
+ * header  (32 bytes): magic, format version (int each),
+ *                     record count, high-water mark id, creation time in epoch millis (long each;
+ *                     taken when the writer was opened, before any user was read)
+ * records (48 bytes each, sorted by CIN then release date):
+ *                     CIN as 8 ASCII bytes, release epoch day (int), flags (int, bit 0 = married),
+ *                     id, version, name offset from the start of the names section (long each),
+ *                     name length, padding (int each)
+ * names   (UTF-8 bytes, addressed by the records)
+ * </pre>
+ * The file is written in one pass by a {@link Writer} from users streamed in key order, and mapped as
+ * several chunks of about 1 GB, so neither side holds the users in heap or is limited to 2 GB.
+ * Lookups binary-search the mapped records, so they touch only a few pages and need no
+ * deserialization step at startup. Instances are safe for concurrent reads.
+ */
+public final class UserSnapshot {
+
+    static final int MAGIC = 0x4D55534E; // "MUSN"
+    static final int FORMAT_VERSION = 2;
+    static final int HEADER_BYTES = 32;
+    static final int RECORD_BYTES = 48;
+    /** Longest name stored, in UTF-8 bytes (VARCHAR(255) in utf8mb4); name chunks overlap by this much. */
+    static final int MAX_NAME_BYTES = 1020;
+
+    private static final int CIN_LENGTH = 8;
+    private static final int MARRIED_FLAG = 1;
+    private static final int DEFAULT_RECORDS_PER_CHUNK = (1 << 30) / RECORD_BYTES;
+    private static final int DEFAULT_NAME_CHUNK_BYTES = 1 << 30;
+
+    private final MappedRegion records;
+    private final MappedRegion names;
+    private final long recordCount;
+    private final long highWaterMark;
+    private final long createdAtEpochMillis;
+    private final long mappedBytes;
+
+    private UserSnapshot(FileChannel channel, int recordsPerChunk, int nameChunkBytes) throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("Not a user snapshot file");
+            }
+        }
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not a user snapshot file");
+        }
+        if (header.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported user snapshot format version " + header.getInt(4));
+        }
+        this.recordCount = header.getLong(8);
+        this.highWaterMark = header.getLong(16);
+        this.createdAtEpochMillis = header.getLong(24);
+        long namesStart = HEADER_BYTES + recordCount * RECORD_BYTES;
+        if (recordCount < 0 || namesStart > size) {
+            throw new IOException("Truncated user snapshot file");
+        }
+        this.records = new MappedRegion(channel, HEADER_BYTES, namesStart - HEADER_BYTES,
+                (long) recordsPerChunk * RECORD_BYTES, 0);
+        this.names = new MappedRegion(channel, namesStart, size - namesStart, nameChunkBytes, MAX_NAME_BYTES);
+        this.mappedBytes = size;
+    }
+
+    /**
+     * Maps a snapshot file read-only. The mapping stays valid after the file is replaced.
+     * @param file The snapshot file.
+     * @return The mapped snapshot.
+     * @throws IOException if the file cannot be mapped or is not a valid snapshot.
+     */
+    public static UserSnapshot map(Path file) throws IOException {
+        return map(file, DEFAULT_RECORDS_PER_CHUNK, DEFAULT_NAME_CHUNK_BYTES);
+    }
+
+    static UserSnapshot map(Path file, int recordsPerChunk, int nameChunkBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new UserSnapshot(channel, recordsPerChunk, nameChunkBytes);
+        }
+    }
+
+    /**
+     * Starts writing a new snapshot that will replace the given file once {@link Writer#commit committed}.
+     * @param file The snapshot file to (re)place.
+     * @return The writer; close it in all cases, which discards the new file unless it was committed.
+     * @throws IOException if the temporary files cannot be created.
+     */
+    public static Writer writer(Path file) throws IOException {
+        return new Writer(file);
+    }
+
+    /**
+     * Looks up a user by CIN and release date.
+     * @param cin The CIN to search for.
+     * @param cinReleaseDate The release date of the CIN.
+     * @return A new User built from the snapshot, or empty if it is not in the snapshot.
+     */
+    public Optional<User> find(String cin, LocalDate cinReleaseDate) {
+        if (!isKeyable(cin)) {
+            return Optional.empty();
+        }
+        long key = cinKey(cin);
+        int epochDay = (int) cinReleaseDate.toEpochDay();
+        long low = 0;
+        long high = recordCount - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            long position = mid * RECORD_BYTES;
+            int cmp = Long.compare(records.getLong(position), key);
+            if (cmp == 0) {
+                cmp = Integer.compare(records.getInt(position + 8), epochDay);
+            }
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return Optional.of(readUser(position, cin, cinReleaseDate));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private User readUser(long position, String cin, LocalDate cinReleaseDate) {
+        byte[] name = new byte[records.getInt(position + 40)];
+        names.get(records.getLong(position + 32), name);
+        return new User(records.getLong(position + 16),
+                new String(name, StandardCharsets.UTF_8),
+                cin,
+                cinReleaseDate,
+                (records.getInt(position + 12) & MARRIED_FLAG) != 0,
+                records.getLong(position + 24));
+    }
+
+    /**
+     * @return The highest user ID covered by the snapshot; newer rows must be caught up from the database.
+     */
+    public long getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * @return The number of users in the snapshot.
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return The size of the mapped file in bytes, an upper bound on the memory it can keep resident.
+     */
+    public long getMappedBytes() {
+        return mappedBytes;
+    }
+
+    /**
+     * @return When the snapshot was started, in epoch millis: no user in it was read earlier than this.
+     */
+    public long getCreatedAtEpochMillis() {
+        return createdAtEpochMillis;
+    }
+
+    private static boolean isKeyable(String cin) {
+        if (cin == null || cin.length() != CIN_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < CIN_LENGTH; i++) {
+            if (cin.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Packs the 8 ASCII bytes of a CIN into a long whose signed order is the CIN's lexicographic order. */
+    private static long cinKey(String cin) {
+        long key = 0;
+        for (int i = 0; i < CIN_LENGTH; i++) {
+            key = (key << 8) | cin.charAt(i);
+        }
+        return key;
+    }
+
+    /**
+     * A file region mapped as consecutive chunks, since one mapping cannot exceed 2 GB.
+     * Each chunk also maps the first {@code overlap} bytes of the next one, so a value of at most
+     * that length starting in a chunk can always be read from it.
+     */
+    private static final class MappedRegion {
+
+        private final MappedByteBuffer[] chunks;
+        private final long chunkBytes;
+
+        MappedRegion(FileChannel channel, long start, long length, long chunkBytes, int overlap) throws IOException {
+            this.chunkBytes = chunkBytes;
+            this.chunks = new MappedByteBuffer[(int) ((length + chunkBytes - 1) / chunkBytes)];
+            for (int i = 0; i < chunks.length; i++) {
+                long chunkStart = i * chunkBytes;
+                long chunkSize = Math.min(chunkBytes + overlap, length - chunkStart);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start + chunkStart, chunkSize);
+            }
+        }
+
+        long getLong(long position) {
+            return chunks[(int) (position / chunkBytes)].getLong((int) (position % chunkBytes));
+        }
+
+        int getInt(long position) {
+            return chunks[(int) (position / chunkBytes)].getInt((int) (position % chunkBytes));
+        }
+
+        void get(long position, byte[] destination) {
+            chunks[(int) (position / chunkBytes)].get((int) (position % chunkBytes), destination);
+        }
+    }
+
+    /**
+     * Writes a snapshot in one pass from users appended in (CIN, release date) order.
+     * Records go through a small buffer straight into a temporary file next to the target, names into a
+     * side file that is appended at the end; memory use does not depend on the number of users.
+     * The finished file is moved over the target atomically.
+     */
+    public static final class Writer implements Closeable {
+
+        private static final int BUFFER_BYTES = 64 * 1024;
+
+        private final Path file;
+        private final Path temp;
+        private final Path namesTemp;
+        private final FileChannel recordsChannel;
+        private final FileChannel namesChannel;
+        private final ByteBuffer recordBuffer = ByteBuffer.allocate(BUFFER_BYTES);
+        private final ByteBuffer nameBuffer = ByteBuffer.allocate(BUFFER_BYTES);
+
+        private long recordCount;
+        private long namesBytes;
+        private long lastKey = Long.MIN_VALUE;
+        private int lastEpochDay = Integer.MIN_VALUE;
+        private boolean committed;
+        private final long createdAtEpochMillis = System.currentTimeMillis();
+
+        private Writer(Path file) throws IOException {
+            this.file = file;
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            this.temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            this.namesTemp = Files.createTempFile(parent, file.getFileName().toString(), ".names.tmp");
+            this.recordsChannel = FileChannel.open(temp, StandardOpenOption.WRITE);
+            this.namesChannel = FileChannel.open(namesTemp, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            recordsChannel.position(HEADER_BYTES);
+        }
+
+        /**
+         * Appends a user. Users whose CIN is not 8 ASCII characters cannot be keyed and are skipped.
+         * @param user The next user, strictly after the previous one in (CIN, release date) order.
+         * @return true if the user was written, false if it was skipped.
+         * @throws IOException if the user is out of order or the file cannot be written.
+         */
+        public boolean append(User user) throws IOException {
+            if (!isKeyable(user.getCin()) || user.getCinReleaseDate() == null) {
+                return false;
+            }
+            byte[] name = user.getName().getBytes(StandardCharsets.UTF_8);
+            if (name.length > MAX_NAME_BYTES) {
+                return false;
+            }
+            long key = cinKey(user.getCin());
+            int epochDay = (int) user.getCinReleaseDate().toEpochDay();
+            if (key < lastKey || (key == lastKey && epochDay <= lastEpochDay)) {
+                throw new IOException("Users must be appended in increasing (CIN, release date) order");
+            }
+            lastKey = key;
+            lastEpochDay = epochDay;
+
+            if (recordBuffer.remaining() < RECORD_BYTES) {
+                drain(recordBuffer, recordsChannel);
+            }
+            recordBuffer.putLong(key)
+                    .putInt(epochDay)
+                    .putInt(user.isMarriedStatus() ? MARRIED_FLAG : 0)
+                    .putLong(user.getId())
+                    .putLong(user.getVersion() != null ? user.getVersion() : 0L)
+                    .putLong(namesBytes)
+                    .putInt(name.length)
+                    .putInt(0);
+            if (nameBuffer.remaining() < name.length) {
+                drain(nameBuffer, namesChannel);
+            }
+            nameBuffer.put(name);
+            namesBytes += name.length;
+            recordCount++;
+            return true;
+        }
+
+        /**
+         * Completes the snapshot and moves it over the target file.
+         * @param highWaterMark The highest user ID known to be covered by the snapshot.
+         * @return The number of users written.
+         * @throws IOException if the file cannot be written.
+         */
+        public long commit(long highWaterMark) throws IOException {
+            drain(recordBuffer, recordsChannel);
+            drain(nameBuffer, namesChannel);
+            long transferred = 0;
+            while (transferred < namesBytes) {
+                transferred += namesChannel.transferTo(transferred, namesBytes - transferred, recordsChannel);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION)
+                    .putLong(recordCount).putLong(highWaterMark).putLong(createdAtEpochMillis);
+            header.flip();
+            while (header.hasRemaining()) {
+                recordsChannel.write(header, header.position());
+            }
+            recordsChannel.force(true);
+            recordsChannel.close();
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+            return recordCount;
+        }
+
+        /**
+         * Releases the temporary files, discarding the snapshot unless it was committed.
+         */
+        @Override
+        public void close() throws IOException {
+            recordsChannel.close();
+            namesChannel.close();
+            Files.deleteIfExists(namesTemp);
+            if (!committed) {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package org.interview.demo.snapshot;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.interview.demo.model.User;
+import org.interview.demo.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves CIN lookups from a memory-mapped {@link UserSnapshot} so a new instance is warm as soon as it starts.
+ *
+ * At startup the snapshot file is mapped and the rows with an ID above its high-water mark are read
+ * from the database into a small in-memory delta. The snapshot is rewritten periodically.
+ * A miss always falls through to the database, so the snapshot never hides a user; users changed or
+ * deleted through this instance are invalidated, but changes made by other instances, and changes made
+ * while this instance was down, are only picked up by the next snapshot write.
+ *
+ * That staleness is bounded by {@code users.snapshot.max-age}: a snapshot started longer ago than that is
+ * not served at all, whether it was loaded at startup or the latest writes failed, and every lookup goes
+ * to the database until a write succeeds. The age must exceed {@code users.snapshot.write-interval-ms} for
+ * the snapshot to be used between writes, and a restart is only warm if the file is younger than the max age.
+ * Enable it only where that much staleness is acceptable ({@code users.snapshot.enabled}, off by default).
+ */
+@Component
+public class UserSnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSnapshotStore.class);
+
+    private static final int PAGE_SIZE = 1000;
+
+    private record LookupKey(String cin, LocalDate cinReleaseDate) {
+    }
+
+    private final UserRepository userRepository;
+    private final boolean enabled;
+    private final Path file;
+    private final Duration maxAge;
+    private final Clock clock;
+
+    private volatile UserSnapshot snapshot;
+    private final ConcurrentHashMap<LookupKey, User> delta = new ConcurrentHashMap<>();
+    /** Invalidated user IDs and CINs, mapped to when they were invalidated (System.nanoTime). */
+    private final ConcurrentHashMap<Long, Long> invalidatedIds = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> invalidatedCins = new ConcurrentHashMap<>();
+    private volatile long warmupMillis = -1;
+
+    @Autowired
+    public UserSnapshotStore(UserRepository userRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${users.snapshot.enabled:false}") boolean enabled,
+                             @Value("${users.snapshot.path:/var/lib/madania/users.snapshot}") String path,
+                             @Value("${users.snapshot.max-age:PT10M}") Duration maxAge) {
+        this(userRepository, meterRegistry, enabled, path, maxAge, Clock.systemUTC());
+    }
+
+    UserSnapshotStore(UserRepository userRepository, MeterRegistry meterRegistry, boolean enabled, String path,
+                      Duration maxAge, Clock clock) {
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+        this.file = Path.of(path);
+        this.maxAge = maxAge;
+        this.clock = clock;
+        Gauge.builder("users.snapshot.mapped.bytes", this, store -> store.snapshot == null ? 0 : store.snapshot.getMappedBytes())
+                .description("Size of the memory-mapped user snapshot (upper bound on its resident memory)")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("users.snapshot.delta.size", delta, ConcurrentHashMap::size)
+                .description("Users newer than the snapshot, held in memory")
+                .register(meterRegistry);
+        Gauge.builder("users.snapshot.age", this, store -> store.snapshot == null ? -1 : store.ageMillis(store.snapshot))
+                .description("Time since the served user snapshot was started")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("users.snapshot.warmup", this, store -> store.warmupMillis)
+                .description("Time from JVM start until the snapshot was mapped and caught up")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Maps the snapshot file, if any, and catches up on the rows written since it was taken.
+     */
+    @PostConstruct
+    public void warmUp() {
+        if (!enabled || !Files.exists(file)) {
+            logger.info("User snapshot {}, lookups start cold", enabled ? "file " + file + " not found" : "disabled");
+            return;
+        }
+        try {
+            long mapStart = System.nanoTime();
+            UserSnapshot mapped = UserSnapshot.map(file);
+            long mapMillis = (System.nanoTime() - mapStart) / 1_000_000;
+            if (isExpired(mapped)) {
+                // Updates and deletes since then are unknown, and catching up only finds new IDs
+                logger.info("User snapshot {} is {} ms old, over the {} max age: lookups start cold",
+                        file, ageMillis(mapped), maxAge);
+                return;
+            }
+
+            long catchUpStart = System.nanoTime();
+            int caughtUp = catchUp(mapped.getHighWaterMark());
+            long catchUpMillis = (System.nanoTime() - catchUpStart) / 1_000_000;
+
+            snapshot = mapped;
+            warmupMillis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+            logger.info("User snapshot warm {} ms after JVM start: mapped {} users ({} bytes) in {} ms, "
+                            + "caught up {} newer users in {} ms",
+                    warmupMillis, mapped.getRecordCount(), mapped.getMappedBytes(), mapMillis, caughtUp, catchUpMillis);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not load user snapshot {}, lookups start cold: {}", file, e.getMessage());
+        }
+    }
+
+    private int catchUp(long highWaterMark) {
+        int count = 0;
+        long lastId = highWaterMark;
+        List<User> page;
+        do {
+            page = userRepository.findTop1000ByIdGreaterThanOrderByIdAsc(lastId);
+            for (User user : page) {
+                delta.put(new LookupKey(user.getCin(), user.getCinReleaseDate()), user);
+                lastId = user.getId();
+            }
+            count += page.size();
+        } while (page.size() == PAGE_SIZE);
+        return count;
+    }
+
+    private long ageMillis(UserSnapshot snapshot) {
+        return clock.millis() - snapshot.getCreatedAtEpochMillis();
+    }
+
+    /** The delta was read after the snapshot was started, so the snapshot's age bounds both. */
+    private boolean isExpired(UserSnapshot snapshot) {
+        return ageMillis(snapshot) > maxAge.toMillis();
+    }
+
+    /**
+     * Looks up a user in the snapshot and its delta.
+     * @param cin The CIN to search for.
+     * @param cinReleaseDate The release date of the CIN.
+     * @return The user, or empty if it is unknown here, was invalidated or the snapshot is older than
+     *         {@code users.snapshot.max-age}; callers then query the database.
+     */
+    public Optional<User> find(String cin, LocalDate cinReleaseDate) {
+        UserSnapshot current = snapshot;
+        if (current == null || isExpired(current) || invalidatedCins.containsKey(cin)) {
+            return Optional.empty();
+        }
+        User fromDelta = delta.get(new LookupKey(cin, cinReleaseDate));
+        Optional<User> user = fromDelta != null ? Optional.of(fromDelta) : current.find(cin, cinReleaseDate);
+        return user.filter(found -> !invalidatedIds.containsKey(found.getId()));
+    }
+
+    /**
+     * Stops serving the given users from the snapshot after they were updated or deleted.
+     * Inside a transaction this happens after commit; see {@link #afterCommit}.
+     * @param ids The IDs of the changed users.
+     */
+    public void invalidate(Collection<Long> ids) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> {
+            long now = System.nanoTime();
+            ids.forEach(id -> invalidatedIds.put(id, now));
+            delta.values().removeIf(user -> ids.contains(user.getId()));
+        });
+    }
+
+    /**
+     * Stops serving the user with the given CIN from the snapshot after it was deleted.
+     * Inside a transaction this happens after commit; see {@link #afterCommit}.
+     * @param cin The CIN of the deleted user.
+     */
+    public void invalidateCin(String cin) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> {
+            invalidatedCins.put(cin, System.nanoTime());
+            delta.values().removeIf(user -> cin.equals(user.getCin()));
+        });
+    }
+
+    /**
+     * Runs an invalidation once the change is committed. {@link #writeSnapshot()} drops invalidations
+     * recorded before it started, which is only safe if the change was already visible to its reads:
+     * recorded before commit, an invalidation could be dropped by a write that still read the old row.
+     */
+    private static void afterCommit(Runnable invalidation) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidation.run();
+                }
+            });
+        } else {
+            invalidation.run();
+        }
+    }
+
+    /**
+     * Rewrites the snapshot from the database and swaps it in. Users are streamed page by page in key
+     * order straight into the file, so the heap never holds more than one page. Invalidations and delta
+     * rows that the new snapshot already reflects are dropped.
+     */
+    @Scheduled(fixedDelayString = "${users.snapshot.write-interval-ms:300000}",
+            initialDelayString = "${users.snapshot.initial-delay-ms:60000}")
+    public void writeSnapshot() {
+        if (!enabled) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        try (UserSnapshot.Writer writer = UserSnapshot.writer(file)) {
+            // Read before the users: every row with a lower ID was inserted before the snapshot started
+            long highWaterMark = userRepository.findMaxId();
+            String lastCin = "";
+            LocalDate lastReleaseDate = LocalDate.EPOCH;
+            List<User> page;
+            do {
+                page = userRepository.findPageAfterCinAndCinReleaseDate(lastCin, lastReleaseDate, PageRequest.of(0, PAGE_SIZE));
+                for (User user : page) {
+                    writer.append(user);
+                }
+                if (!page.isEmpty()) {
+                    User last = page.get(page.size() - 1);
+                    lastCin = last.getCin();
+                    lastReleaseDate = last.getCinReleaseDate();
+                }
+            } while (page.size() == PAGE_SIZE);
+
+            long written = writer.commit(highWaterMark);
+            UserSnapshot mapped = UserSnapshot.map(file);
+            snapshot = mapped;
+            delta.values().removeIf(user -> user.getId() <= highWaterMark);
+            invalidatedIds.values().removeIf(invalidatedAt -> invalidatedAt < startedAt);
+            invalidatedCins.values().removeIf(invalidatedAt -> invalidatedAt < startedAt);
+            logger.info("Wrote user snapshot {} with {} users ({} bytes) in {} ms",
+                    file, written, mapped.getMappedBytes(), (System.nanoTime() - startedAt) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Could not write user snapshot {}: {}", file, e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+-- Baseline schema, matching what Hibernate's ddl-auto=update created before migrations were introduced.
+-- IF NOT EXISTS keeps this a no-op on databases that already have the tables; columns added to users
+-- after those databases were created (version) are added to them by later migrations (V6).
+
+CREATE TABLE IF NOT EXISTS users (
+    id               BIGINT       NOT NULL AUTO_INCREMENT,
+    name             VARCHAR(255) NOT NULL,
+    cin              VARCHAR(255) NOT NULL,
+    cin_release_date DATE         NOT NULL,
+    married_status   BIT          NOT NULL,
+    version          BIGINT       NOT NULL DEFAULT 0,
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_users_cin (cin)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS user_stats_monthly (
+    release_month   VARCHAR(7) NOT NULL,
+    married_count   BIGINT     NOT NULL,
+    unmarried_count BIGINT     NOT NULL,
+    PRIMARY KEY (release_month)
+) ENGINE = InnoDB;
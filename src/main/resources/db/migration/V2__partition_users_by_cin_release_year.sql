@@ -0,0 +1,63 @@
+-- Range-partition users by CIN release year so date-window queries only read the matching partitions.
+--
+-- MySQL requires the partitioning column in every unique key, including the primary key:
+--   * the primary key becomes (id, cin_release_date); id stays AUTO_INCREMENT and unique on its own,
+--   * the unique key on cin becomes (cin, cin_release_date), and idx_users_cin keeps lookups by CIN
+--     indexed. One user per CIN is enforced again by the unpartitioned user_cins table (V5).
+--
+-- cin_release_date can never be in the future (validated by the API), so p_future stays empty and
+-- UserPartitionMaintenance can split new yearly partitions out of it without moving any row.
+
+-- Hibernate named the old unique key on cin itself (UK_...), so look it up instead of guessing.
+SET @old_cin_key := (SELECT index_name
+                     FROM information_schema.statistics
+                     WHERE table_schema = DATABASE()
+                       AND table_name = 'users'
+                       AND column_name = 'cin'
+                       AND non_unique = 0
+                       AND index_name <> 'PRIMARY'
+                     LIMIT 1);
+SET @drop_old_cin_key := IF(@old_cin_key IS NULL, 'DO 0', CONCAT('ALTER TABLE users DROP INDEX `', @old_cin_key, '`'));
+PREPARE drop_old_cin_key FROM @drop_old_cin_key;
+EXECUTE drop_old_cin_key;
+DEALLOCATE PREPARE drop_old_cin_key;
+
+ALTER TABLE users
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, cin_release_date),
+    ADD UNIQUE KEY uk_users_cin_release (cin, cin_release_date),
+    ADD KEY idx_users_cin (cin);
+
+ALTER TABLE users
+    PARTITION BY RANGE (YEAR(cin_release_date)) (
+        PARTITION p_before_2000 VALUES LESS THAN (2000),
+        PARTITION p2000 VALUES LESS THAN (2001),
+        PARTITION p2001 VALUES LESS THAN (2002),
+        PARTITION p2002 VALUES LESS THAN (2003),
+        PARTITION p2003 VALUES LESS THAN (2004),
+        PARTITION p2004 VALUES LESS THAN (2005),
+        PARTITION p2005 VALUES LESS THAN (2006),
+        PARTITION p2006 VALUES LESS THAN (2007),
+        PARTITION p2007 VALUES LESS THAN (2008),
+        PARTITION p2008 VALUES LESS THAN (2009),
+        PARTITION p2009 VALUES LESS THAN (2010),
+        PARTITION p2010 VALUES LESS THAN (2011),
+        PARTITION p2011 VALUES LESS THAN (2012),
+        PARTITION p2012 VALUES LESS THAN (2013),
+        PARTITION p2013 VALUES LESS THAN (2014),
+        PARTITION p2014 VALUES LESS THAN (2015),
+        PARTITION p2015 VALUES LESS THAN (2016),
+        PARTITION p2016 VALUES LESS THAN (2017),
+        PARTITION p2017 VALUES LESS THAN (2018),
+        PARTITION p2018 VALUES LESS THAN (2019),
+        PARTITION p2019 VALUES LESS THAN (2020),
+        PARTITION p2020 VALUES LESS THAN (2021),
+        PARTITION p2021 VALUES LESS THAN (2022),
+        PARTITION p2022 VALUES LESS THAN (2023),
+        PARTITION p2023 VALUES LESS THAN (2024),
+        PARTITION p2024 VALUES LESS THAN (2025),
+        PARTITION p2025 VALUES LESS THAN (2026),
+        PARTITION p2026 VALUES LESS THAN (2027),
+        PARTITION p2027 VALUES LESS THAN (2028),
+        PARTITION p_future VALUES LESS THAN MAXVALUE
+    );
@@ -0,0 +1,25 @@
+-- Make user_stats_monthly the source of truth for /api/v1/users/stats.
+--
+-- Every insert into users bumps its release month with INSERT ... ON DUPLICATE KEY UPDATE, in the
+-- inserting transaction: the count commits or rolls back with the user, survives crashes, and sums
+-- the writes of every application instance. UserStatsService only caches this table.
+--
+-- Creating triggers needs the TRIGGER privilege and, with binary logging enabled, either SUPER or
+-- log_bin_trust_function_creators=1 on the server.
+
+CREATE TRIGGER users_stats_after_insert
+    AFTER INSERT ON users
+    FOR EACH ROW
+    INSERT INTO user_stats_monthly (release_month, married_count, unmarried_count)
+    VALUES (DATE_FORMAT(NEW.cin_release_date, '%Y-%m'), NEW.married_status = 1, NEW.married_status = 0)
+    ON DUPLICATE KEY UPDATE married_count   = married_count + (NEW.married_status = 1),
+                            unmarried_count = unmarried_count + (NEW.married_status = 0);
+
+-- Replace the absolute counts periodically flushed by earlier versions (which could lag or be
+-- overwritten by another instance) with exact ones.
+DELETE FROM user_stats_monthly;
+
+INSERT INTO user_stats_monthly (release_month, married_count, unmarried_count)
+SELECT DATE_FORMAT(cin_release_date, '%Y-%m'), SUM(married_status = 1), SUM(married_status = 0)
+FROM users
+GROUP BY DATE_FORMAT(cin_release_date, '%Y-%m');
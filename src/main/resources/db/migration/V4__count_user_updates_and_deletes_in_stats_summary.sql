@@ -0,0 +1,32 @@
+-- Keep user_stats_monthly exact across PATCH and DELETE as well (see V3 for inserts).
+--
+-- The API updates and deletes users with single targeted statements, without loading the rows,
+-- so only the database knows which release month and marital status a change touched. These
+-- triggers apply the change to the summary in the same transaction as the statement itself.
+
+-- A release date or marital status change moves one count; name-only updates touch no summary row.
+CREATE TRIGGER users_stats_after_update
+    AFTER UPDATE ON users
+    FOR EACH ROW
+    INSERT INTO user_stats_monthly (release_month, married_count, unmarried_count)
+    SELECT release_month, married_delta, unmarried_delta
+    FROM (SELECT release_month, SUM(married) AS married_delta, SUM(unmarried) AS unmarried_delta
+          FROM (SELECT DATE_FORMAT(OLD.cin_release_date, '%Y-%m') AS release_month,
+                       -(OLD.married_status = 1)                  AS married,
+                       -(OLD.married_status = 0)                  AS unmarried
+                UNION ALL
+                SELECT DATE_FORMAT(NEW.cin_release_date, '%Y-%m'),
+                       NEW.married_status = 1,
+                       NEW.married_status = 0) AS changes
+          GROUP BY release_month) AS delta
+    WHERE married_delta <> 0 OR unmarried_delta <> 0
+    ON DUPLICATE KEY UPDATE married_count   = married_count + married_delta,
+                            unmarried_count = unmarried_count + unmarried_delta;
+
+CREATE TRIGGER users_stats_after_delete
+    AFTER DELETE ON users
+    FOR EACH ROW
+    UPDATE user_stats_monthly
+    SET married_count   = married_count - (OLD.married_status = 1),
+        unmarried_count = unmarried_count - (OLD.married_status = 0)
+    WHERE release_month = DATE_FORMAT(OLD.cin_release_date, '%Y-%m');
@@ -0,0 +1,50 @@
+-- Enforce one user per CIN in the database again.
+--
+-- V2 had to widen the unique key on cin to (cin, cin_release_date) for partitioning, leaving the check in
+-- UserServiceImpl as the only guard: two concurrent creations with the same CIN and different release
+-- dates could both pass it. user_cins is not partitioned, so its primary key on cin alone holds: each user
+-- claims its CIN there in the transaction that inserts it, and a second claim of the same CIN waits for
+-- the first transaction and then fails.
+--
+-- UserServiceImpl claims the CIN itself with INSERT IGNORE, so a duplicate comes back as 0 rows instead of
+-- an error. The triggers below keep the table in step with users on every other path: an insert that was
+-- not claimed beforehand claims its CIN (failing on a duplicate), and updates and deletes move or release
+-- the claim. The release date tells a user's own claim apart from another user's.
+
+CREATE TABLE user_cins
+(
+    cin              VARCHAR(255) NOT NULL,
+    cin_release_date DATE         NOT NULL,
+    PRIMARY KEY (cin)
+);
+
+-- Rows duplicated while only the service checked CINs keep the earliest claim; resolve them by hand.
+INSERT INTO user_cins (cin, cin_release_date)
+SELECT cin, MIN(cin_release_date)
+FROM users
+GROUP BY cin;
+
+CREATE TRIGGER users_cins_before_insert
+    BEFORE INSERT ON users
+    FOR EACH ROW
+    INSERT INTO user_cins (cin, cin_release_date)
+    SELECT NEW.cin, NEW.cin_release_date
+    FROM DUAL
+    WHERE NOT EXISTS (SELECT 1 FROM user_cins WHERE cin = NEW.cin AND cin_release_date = NEW.cin_release_date);
+
+CREATE TRIGGER users_cins_after_update
+    AFTER UPDATE ON users
+    FOR EACH ROW
+    UPDATE user_cins
+    SET cin              = NEW.cin,
+        cin_release_date = NEW.cin_release_date
+    WHERE cin = OLD.cin
+      AND cin_release_date = OLD.cin_release_date
+      AND (NEW.cin <> OLD.cin OR NEW.cin_release_date <> OLD.cin_release_date);
+
+CREATE TRIGGER users_cins_after_delete
+    AFTER DELETE ON users
+    FOR EACH ROW
+    DELETE FROM user_cins
+    WHERE cin = OLD.cin
+      AND cin_release_date = OLD.cin_release_date;
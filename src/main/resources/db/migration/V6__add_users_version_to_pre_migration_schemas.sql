@@ -0,0 +1,16 @@
+-- Add the optimistic locking column to databases created before migrations were introduced.
+--
+-- Hibernate's ddl-auto created users without a version column until User got @Version. Such databases are
+-- baselined at version 0 and V1 (CREATE TABLE IF NOT EXISTS) leaves their users table as it is, so without
+-- this migration ddl-auto=validate stops the application on the missing column. Existing rows start at 0,
+-- the version a PATCH or DELETE of a freshly read user is expected to carry.
+
+SET @has_version := (SELECT COUNT(*)
+                     FROM information_schema.columns
+                     WHERE table_schema = DATABASE()
+                       AND table_name = 'users'
+                       AND column_name = 'version');
+SET @add_version := IF(@has_version > 0, 'DO 0', 'ALTER TABLE users ADD COLUMN version BIGINT NOT NULL DEFAULT 0');
+PREPARE add_version FROM @add_version;
+EXECUTE add_version;
+DEALLOCATE PREPARE add_version;
@@ -2,17 +2,27 @@ package org.interview.demo.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.interview.demo.model.User;
+import org.interview.demo.model.UserPatch;
+import org.interview.demo.model.UserStats;
+import org.interview.demo.persistence.QueryCountAssertions;
+import org.interview.demo.repository.UserMonthlyStatsRepository;
 import org.interview.demo.repository.UserRepository;
+import org.interview.demo.service.UserCreationResult;
+import org.interview.demo.service.UserModificationResult;
+import org.interview.demo.service.UserService;
+import org.interview.demo.service.UserStatsService;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.testcontainers.containers.MySQLContainer;
 import org.testcontainers.junit.jupiter.Container;
@@ -21,11 +31,23 @@ import org.testcontainers.utility.DockerImageName;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -39,7 +61,8 @@ public class UserControllerIntegrationTest {
     static MySQLContainer<?> mysqlContainer = new MySQLContainer<>(DockerImageName.parse("mysql:8.0"))
             .withDatabaseName("test_user_db")
             .withUsername("test_user")
-            .withPassword("test_password");
+            .withPassword("test_password")
+            .withCommand("--log-bin-trust-function-creators=1"); // Lets the non-SUPER test user create the migration triggers
     // .withReuse(true); // You can add this back later if startup time is an issue and it's stable
 
     @DynamicPropertySource
@@ -48,7 +71,7 @@ public class UserControllerIntegrationTest {
         registry.add("spring.datasource.username", mysqlContainer::getUsername);
         registry.add("spring.datasource.password", mysqlContainer::getPassword);
         registry.add("spring.datasource.driver-class-name", () -> "com.mysql.cj.jdbc.Driver");
-        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop"); // Fresh schema for test class
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate"); // Schema (partitions, triggers) comes from the Flyway migrations
         registry.add("spring.jpa.properties.hibernate.dialect", () -> "org.hibernate.dialect.MySQLDialect");
         registry.add("spring.jpa.show-sql", () -> "true"); // Enable for test debugging if needed
         registry.add("spring.jpa.properties.hibernate.format_sql", () -> "true");
@@ -60,6 +83,12 @@ public class UserControllerIntegrationTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserMonthlyStatsRepository userMonthlyStatsRepository;
+
+    @Autowired
+    private UserService userService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -70,6 +99,7 @@ public class UserControllerIntegrationTest {
     @BeforeEach
     void setUp() {
         userRepository.deleteAll();
+        userMonthlyStatsRepository.deleteAll();
         commonReleaseDate = LocalDate.of(2022, 5, 10);
         commonReleaseDateString = commonReleaseDate.format(DateTimeFormatter.ISO_DATE);
         // Use a VALID NUMERIC CIN
@@ -183,6 +213,46 @@ public class UserControllerIntegrationTest {
         assertThat(userRepository.count()).isEqualTo(1); // Only the first user should be in DB
     }
 
+    @Test
+    void createUser_concurrentlyWithSameCinAndDifferentDates_shouldCreateOnlyOne() throws Exception {
+        // Each creation uses its own release date, so only user_cins can tell them apart
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<UserCreationResult> results = new ArrayList<>();
+        try {
+            List<Callable<UserCreationResult>> creations = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                User user = new User(null, "Racing User " + i, userRequestPayload.getCin(), commonReleaseDate.minusYears(i), true);
+                creations.add(() -> userService.tryCreateUser(user));
+            }
+            for (Future<UserCreationResult> creation : executor.invokeAll(creations)) {
+                results.add(creation.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(results).filteredOn(UserCreationResult.Created.class::isInstance).hasSize(1);
+        assertThat(results).filteredOn(UserCreationResult.DuplicateCin.class::isInstance).hasSize(7);
+        assertThat(userRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void saveUser_bypassingTheService_shouldStillRejectDuplicateCin() {
+        userRepository.save(new User(null, "Existing User", userRequestPayload.getCin(), LocalDate.now().minusYears(1), false));
+
+        assertThatThrownBy(() -> userRepository.save(userRequestPayload))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(userRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void createUser_afterDeletingTheHolderOfItsCin_shouldSucceed() throws Exception {
+        User existingUser = userRepository.save(new User(null, "Existing User", userRequestPayload.getCin(), LocalDate.now().minusYears(1), false));
+        userService.deleteUser(existingUser.getId(), null);
+
+        assertThat(userService.tryCreateUser(userRequestPayload)).isInstanceOf(UserCreationResult.Created.class);
+    }
+
 
     @Test
     void whenGetUserByCinAndReleaseDate_userExists_shouldReturnUser() throws Exception {
@@ -215,7 +285,7 @@ public class UserControllerIntegrationTest {
 
         response.andDo(print())
                 .andExpect(status().isNotFound())
-                .andExpect(content().string("User not found with CIN: " + nonExistentCin + " and Release Date: " + nonExistentDate));
+                .andExpect(content().string("User not found."));
     }
 
     @Test
@@ -240,4 +310,208 @@ public class UserControllerIntegrationTest {
                 // This message comes from your controller's manual null check for releaseDate
                 .andExpect(content().string("Release Date parameter ('releaseDate') cannot be null."));
     }
+
+    @Test
+    void whenPatchUser_withCurrentVersion_shouldUpdateGivenFieldsAndBumpVersion() throws Exception {
+        User savedUser = userRepository.save(userRequestPayload);
+        UserPatch userPatch = new UserPatch(null, null, false, savedUser.getVersion());
+
+        ResultActions response = mockMvc.perform(patch("/api/v1/users/{id}", savedUser.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(userPatch)));
+
+        response.andExpect(status().isNoContent())
+                .andExpect(header().string("ETag", "\"" + (savedUser.getVersion() + 1) + "\""));
+
+        User updated = userRepository.findById(savedUser.getId()).orElseThrow();
+        assertThat(updated.isMarriedStatus()).isFalse();
+        assertThat(updated.getName()).isEqualTo(savedUser.getName());
+        assertThat(updated.getVersion()).isEqualTo(savedUser.getVersion() + 1);
+    }
+
+    @Test
+    void whenPatchUser_withStaleVersion_shouldReturnConflict() throws Exception {
+        User savedUser = userRepository.save(userRequestPayload);
+        UserPatch userPatch = new UserPatch("Renamed", null, null, savedUser.getVersion() + 5);
+
+        mockMvc.perform(patch("/api/v1/users/{id}", savedUser.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userPatch)))
+                .andExpect(status().isConflict());
+
+        assertThat(userRepository.findById(savedUser.getId()).orElseThrow().getName()).isEqualTo(savedUser.getName());
+    }
+
+    @Test
+    void whenPatchUser_userDoesNotExist_shouldReturnNotFound() throws Exception {
+        UserPatch userPatch = new UserPatch("Renamed", null, null, 0L);
+
+        mockMvc.perform(patch("/api/v1/users/{id}", 999999L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userPatch)))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void whenDeleteUser_byIdAndByCin_shouldRemoveRows() throws Exception {
+        User first = userRepository.save(userRequestPayload);
+        User second = userRepository.save(new User(null, "Second User", "87654321", commonReleaseDate, false));
+
+        mockMvc.perform(delete("/api/v1/users/{id}", first.getId()))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete("/api/v1/users/cin/{cin}", second.getCin()))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete("/api/v1/users/{id}", first.getId()))
+                .andExpect(status().isNotFound());
+
+        assertThat(userRepository.count()).isEqualTo(0);
+    }
+
+    @Test
+    void whenDeleteUsers_inBulk_shouldReturnDeletedCount() throws Exception {
+        User first = userRepository.save(userRequestPayload);
+        User second = userRepository.save(new User(null, "Second User", "87654321", commonReleaseDate, false));
+        User kept = userRepository.save(new User(null, "Kept User", "11112222", commonReleaseDate, false));
+
+        mockMvc.perform(delete("/api/v1/users")
+                        .param("ids", first.getId() + "," + second.getId() + ",999999"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted", is(2)));
+
+        assertThat(userRepository.findAll()).containsExactly(kept);
+    }
+
+    @Test
+    void whenGetUsersReleasedBetween_shouldStreamOnlyUsersInRange() throws Exception {
+        userRepository.save(userRequestPayload);
+        userRepository.save(new User(null, "Same Month User", "87654321", commonReleaseDate.plusDays(5), false));
+        userRepository.save(new User(null, "Older User", "11112222", LocalDate.of(2019, 3, 1), false));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/users")
+                        .param("releasedFrom", "2022-05-01")
+                        .param("releasedTo", "2022-05-31"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[*].cin", containsInAnyOrder("12345678", "87654321")));
+    }
+
+    @Test
+    void stats_afterRestartWithoutShutdownHook_shouldCountEveryCommittedCreation() throws Exception {
+        mockMvc.perform(post("/api/v1/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userRequestPayload)))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/api/v1/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new User(null, "Second User", "87654321", commonReleaseDate, false))))
+                .andExpect(status().isCreated());
+
+        // A fresh instance only sees what is in the database, like a restart after kill -9:
+        // nothing was flushed by the running instance, yet both creations are counted.
+        UserStatsService restarted = new UserStatsService(userMonthlyStatsRepository);
+        restarted.load();
+        UserStats stats = restarted.getStats();
+
+        assertThat(stats.totalUsers()).isEqualTo(2);
+        assertThat(stats.married()).isEqualTo(1);
+        assertThat(stats.issuancesByMonth()).containsEntry("2022-05", 2L);
+    }
+
+    @Test
+    void stats_afterPatchAndDelete_shouldStayExactWithoutRecount() throws Exception {
+        User moved = userRepository.save(userRequestPayload);
+        User deleted = userRepository.save(new User(null, "Second User", "87654321", commonReleaseDate, false));
+        UserPatch userPatch = new UserPatch(null, LocalDate.of(2021, 1, 4), false, moved.getVersion());
+
+        mockMvc.perform(patch("/api/v1/users/{id}", moved.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userPatch)))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete("/api/v1/users/cin/{cin}", deleted.getCin()))
+                .andExpect(status().isNoContent());
+
+        UserStatsService restarted = new UserStatsService(userMonthlyStatsRepository);
+        restarted.load();
+        UserStats stats = restarted.getStats();
+
+        assertThat(stats.totalUsers()).isEqualTo(1);
+        assertThat(stats.married()).isEqualTo(0);
+        assertThat(stats.issuancesByMonth()).containsExactly(Map.entry("2021-01", 1L));
+    }
+
+    @Test
+    void stats_withConcurrentPatchesAndDeletes_shouldMatchUsersTable() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            users.add(userRepository.save(new User(null, "User " + i, String.format("%08d", 10_000 + i), commonReleaseDate, true)));
+        }
+
+        // Half of the users are deleted and the other half marked unmarried, all at once
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<UserModificationResult>> writes = new ArrayList<>();
+            for (int i = 0; i < users.size(); i++) {
+                User user = users.get(i);
+                writes.add(i % 2 == 0
+                        ? () -> userService.deleteUser(user.getId(), null)
+                        : () -> userService.updateUser(user.getId(), new UserPatch(null, null, false, user.getVersion())));
+            }
+            for (Future<UserModificationResult> write : executor.invokeAll(writes)) {
+                assertThat(write.get()).isInstanceOf(UserModificationResult.Applied.class);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        UserStatsService restarted = new UserStatsService(userMonthlyStatsRepository);
+        restarted.load();
+        UserStats stats = restarted.getStats();
+
+        assertThat(stats.totalUsers()).isEqualTo(userRepository.count()).isEqualTo(10);
+        assertThat(stats.married()).isEqualTo(0);
+        assertThat(stats.unmarried()).isEqualTo(10);
+    }
+
+    // --- Query-count guards: fail on any extra SQL statement per operation ---
+
+    @Test
+    void createUser_shouldExecuteOneClaimAndOneInsert() throws Throwable {
+        QueryCountAssertions.assertStatementCount(2, () -> mockMvc.perform(post("/api/v1/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userRequestPayload)))
+                .andExpect(status().isCreated()));
+    }
+
+    @Test
+    void getUserByCinAndReleaseDate_shouldExecuteOneQuery() throws Throwable {
+        userRepository.save(userRequestPayload);
+
+        QueryCountAssertions.assertStatementCount(1, () -> mockMvc.perform(get("/api/v1/users/cin/{cin}", userRequestPayload.getCin())
+                        .param("releaseDate", commonReleaseDateString))
+                .andExpect(status().isOk()));
+    }
+
+    @Test
+    void patchAndDelete_shouldExecuteOneStatementEach() throws Throwable {
+        User savedUser = userRepository.save(userRequestPayload);
+        UserPatch userPatch = new UserPatch("Renamed", null, null, savedUser.getVersion());
+
+        QueryCountAssertions.assertStatementCount(1, () -> mockMvc.perform(patch("/api/v1/users/{id}", savedUser.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userPatch)))
+                .andExpect(status().isNoContent()));
+        QueryCountAssertions.assertStatementCount(1, () -> mockMvc.perform(delete("/api/v1/users/{id}", savedUser.getId()))
+                .andExpect(status().isNoContent()));
+    }
+
+    @Test
+    void getStats_shouldNotQueryTheDatabase() throws Throwable {
+        QueryCountAssertions.assertStatementCount(0, () -> mockMvc.perform(get("/api/v1/users/stats"))
+                .andExpect(status().isOk()));
+    }
 }
@@ -0,0 +1,50 @@
+package org.interview.demo.controller;
+
+import org.interview.demo.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Checks the cap on concurrent range downloads, with room for a single one.
+ */
+@WebMvcTest(UserController.class)
+@TestPropertySource(properties = "users.streaming.max-concurrent=1")
+class UserControllerStreamingLimitTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private UserService userService;
+
+    private static RequestBuilder download() {
+        return get("/api/v1/users").param("releasedFrom", "2023-01-01").param("releasedTo", "2023-12-31");
+    }
+
+    @Test
+    void whenDownloadLimitIsReached_shouldReturnServiceUnavailableUntilADownloadCompletes() throws Exception {
+        MvcResult first = mockMvc.perform(download())
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(download())
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+
+        first.getAsyncResult(); // Waits for the body to be written
+        first.getRequest().getAsyncContext().complete();
+
+        mockMvc.perform(download())
+                .andExpect(request().asyncStarted());
+    }
+}
@@ -2,6 +2,7 @@ package org.interview.demo.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.interview.demo.model.User;
+import org.interview.demo.service.UserCreationResult;
 import org.interview.demo.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,14 +11,19 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Optional;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.CoreMatchers.is;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -50,7 +56,7 @@ class UserControllerTest {
 
     @Test
     void whenCreateUser_withValidInput_shouldReturnCreatedUser() throws Exception {
-        given(userService.createUser(any(User.class))).willReturn(userResponseDto);
+        given(userService.tryCreateUser(any(User.class))).willReturn(new UserCreationResult.Created(userResponseDto));
 
         ResultActions response = mockMvc.perform(post("/api/v1/users")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -64,4 +70,51 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.cinReleaseDate", is(releaseDateString)))
                 .andExpect(jsonPath("$.marriedStatus", is(userRequestDto.isMarriedStatus())));
     }
+
+    @Test
+    void whenCreateUser_withDuplicateCin_shouldReturnConflict() throws Exception {
+        given(userService.tryCreateUser(any(User.class)))
+                .willReturn(new UserCreationResult.DuplicateCin(userRequestDto.getCin()));
+
+        ResultActions response = mockMvc.perform(post("/api/v1/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(userRequestDto)));
+
+        response.andExpect(status().isConflict())
+                .andExpect(content().string("User with CIN " + userRequestDto.getCin() + " already exists."));
+    }
+
+    @Test
+    void whenGetUserByCinAndReleaseDate_userDoesNotExist_shouldReturnNotFound() throws Exception {
+        given(userService.findUserByCinAndCinReleaseDate("12345678", releaseDate)).willReturn(Optional.empty());
+
+        ResultActions response = mockMvc.perform(get("/api/v1/users/cin/{cin}", "12345678")
+                .param("releaseDate", releaseDateString)
+                .accept(MediaType.APPLICATION_JSON));
+
+        response.andExpect(status().isNotFound())
+                .andExpect(content().string("User not found."));
+    }
+
+    @Test
+    void whenGetUsersReleasedBetween_withReversedRange_shouldReturnBadRequest() throws Exception {
+        ResultActions response = mockMvc.perform(get("/api/v1/users")
+                .param("releasedFrom", "2023-12-31")
+                .param("releasedTo", "2023-01-01"));
+
+        response.andExpect(status().isBadRequest())
+                .andExpect(content().string("'releasedFrom' cannot be after 'releasedTo'."));
+    }
+
+    @Test
+    void whenGetUsersReleasedBetween_shouldStreamUnderItsOwnTimeout() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/v1/users")
+                        .param("releasedFrom", "2023-01-01")
+                        .param("releasedTo", "2023-12-31"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // users.streaming.timeout defaults to 10 minutes instead of the container's 30 s
+        assertThat(result.getRequest().getAsyncContext().getTimeout()).isEqualTo(Duration.ofMinutes(10).toMillis());
+    }
 }
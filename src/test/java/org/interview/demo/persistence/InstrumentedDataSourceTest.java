@@ -0,0 +1,54 @@
+package org.interview.demo.persistence;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link InstrumentedDataSource}.
+ */
+class InstrumentedDataSourceTest {
+
+    @Test
+    void executions_shouldBeCountedTimedAndFlaggedWhenSlow() throws Throwable {
+        DataSource target = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement preparedStatement = mock(PreparedStatement.class);
+        Statement statement = mock(Statement.class);
+        when(target.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement("select * from users where cin=?")).thenReturn(preparedStatement);
+        when(connection.createStatement()).thenReturn(statement);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // A zero threshold flags every execution as slow
+        InstrumentedDataSource dataSource = new InstrumentedDataSource(target, meterRegistry, Duration.ZERO);
+
+        QueryCountAssertions.assertStatementCount(2, () -> {
+            try (Connection wrapped = dataSource.getConnection()) {
+                PreparedStatement wrappedPrepared = wrapped.prepareStatement("select * from users where cin=?");
+                wrappedPrepared.setString(1, "12345678"); // Not an execution
+                wrappedPrepared.executeQuery();
+                wrapped.createStatement().execute("delete from users where id = 42");
+            }
+            return null;
+        });
+
+        assertThat(meterRegistry.timer("db.statements").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("db.statements.slow").count()).isEqualTo(2);
+        verify(preparedStatement).executeQuery();
+        verify(statement).execute("delete from users where id = 42");
+    }
+
+    @Test
+    void redact_shouldRemoveLiteralsButKeepIdentifiers() {
+        assertThat(InstrumentedDataSource.redact("select u1_0.id from users u1_0 where u1_0.cin='12345678' and u1_0.id=42"))
+                .isEqualTo("select u1_0.id from users u1_0 where u1_0.cin=? and u1_0.id=?");
+    }
+}
@@ -0,0 +1,97 @@
+package org.interview.demo.persistence;
+
+import org.interview.demo.model.User;
+import org.interview.demo.model.UserPatch;
+import org.interview.demo.model.UserStats;
+import org.interview.demo.service.UserCreationResult;
+import org.interview.demo.service.UserModificationResult;
+import org.interview.demo.service.UserService;
+import org.interview.demo.service.UserStatsService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts the application on a database created by ddl-auto before schema migrations were introduced
+ * (see db/legacy/ddl_auto_baseline_schema.sql), with a user already in it, and checks that the
+ * migrations bring it to the schema the entities validate against.
+ */
+@Testcontainers
+@SpringBootTest
+class LegacySchemaMigrationIntegrationTest {
+
+    private static final LocalDate LEGACY_RELEASE_DATE = LocalDate.of(2015, 3, 2);
+
+    @Container
+    static MySQLContainer<?> mysqlContainer = new MySQLContainer<>(DockerImageName.parse("mysql:8.0"))
+            .withDatabaseName("legacy_user_db")
+            .withUsername("test_user")
+            .withPassword("test_password")
+            .withCommand("--log-bin-trust-function-creators=1")
+            .withInitScript("db/legacy/ddl_auto_baseline_schema.sql");
+
+    @DynamicPropertySource
+    static void configureTestDatasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", mysqlContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", mysqlContainer::getUsername);
+        registry.add("spring.datasource.password", mysqlContainer::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "com.mysql.cj.jdbc.Driver");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate"); // Fails the context if a migration is missing
+        registry.add("spring.jpa.properties.hibernate.dialect", () -> "org.hibernate.dialect.MySQLDialect");
+    }
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void legacyDatabase_shouldBeBaselinedAndMigrated() {
+        Map<String, Object> baseline = jdbcTemplate.queryForMap(
+                "SELECT version, type FROM flyway_schema_history WHERE installed_rank = 1");
+        assertThat(baseline).containsEntry("version", "0").containsEntry("type", "BASELINE");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.partitions "
+                        + "WHERE table_schema = DATABASE() AND table_name = 'users' AND partition_name IS NOT NULL",
+                Long.class)).isPositive();
+    }
+
+    @Test
+    void legacyUser_shouldBeReadableAndPatchableAtVersionZero() {
+        User legacyUser = userService.findUserByCinAndCinReleaseDate("87654321", LEGACY_RELEASE_DATE).orElseThrow();
+        assertThat(legacyUser.getVersion()).isEqualTo(0L);
+
+        UserModificationResult result = userService.updateUser(legacyUser.getId(), new UserPatch("Renamed", null, null, 0L));
+
+        assertThat(result).isEqualTo(new UserModificationResult.Applied(1L));
+    }
+
+    @Test
+    void legacyUser_shouldHoldItsCinAndBeCounted() {
+        UserCreationResult result = userService.tryCreateUser(
+                new User(null, "Newcomer", "87654321", LocalDate.of(2020, 1, 1), false));
+        assertThat(result).isInstanceOf(UserCreationResult.DuplicateCin.class);
+
+        userStatsService.refresh();
+        UserStats stats = userStatsService.getStats();
+        assertThat(stats.totalUsers()).isEqualTo(1);
+        assertThat(stats.married()).isEqualTo(1);
+        assertThat(stats.issuancesByMonth()).containsExactly(Map.entry("2015-03", 1L));
+    }
+}
@@ -0,0 +1,32 @@
+package org.interview.demo.persistence;
+
+import org.junit.jupiter.api.function.ThrowingSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test API to pin the number of SQL statements an operation executes, so that extra queries
+ * (N+1 patterns, accidental load-before-write) fail the build.
+ * Counts statements run on the calling thread through the {@link InstrumentedDataSource};
+ * MockMvc requests run on the test thread, so they are covered.
+ */
+public final class QueryCountAssertions {
+
+    private QueryCountAssertions() {
+    }
+
+    /**
+     * Runs the action and asserts it executed exactly the expected number of statements.
+     * @param expected The expected number of statements.
+     * @param action The operation to measure.
+     * @return The action's result.
+     */
+    public static <T> T assertStatementCount(long expected, ThrowingSupplier<T> action) throws Throwable {
+        long before = StatementCounter.current();
+        T result = action.get();
+        assertThat(StatementCounter.current() - before)
+                .as("SQL statements executed")
+                .isEqualTo(expected);
+        return result;
+    }
+}
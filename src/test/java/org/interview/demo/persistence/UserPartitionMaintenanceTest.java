@@ -0,0 +1,76 @@
+package org.interview.demo.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link UserPartitionMaintenance}.
+ */
+@ExtendWith(MockitoExtension.class)
+class UserPartitionMaintenanceTest {
+
+    private static final Clock MID_2026 = Clock.fixed(Instant.parse("2026-06-15T00:00:00Z"), ZoneOffset.UTC);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void ensureUpcomingPartitions_shouldSplitMissingYearsOutOfFuturePartition() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class)))
+                .thenReturn(List.of("p_before_2000", "p2025", "p2026", "p_future"));
+
+        List<String> added = new UserPartitionMaintenance(jdbcTemplate, 2, MID_2026).ensureUpcomingPartitions();
+
+        assertThat(added).containsExactly("p2027", "p2028");
+        verify(jdbcTemplate).execute("ALTER TABLE users REORGANIZE PARTITION p_future INTO ("
+                + "PARTITION p2027 VALUES LESS THAN (2028), PARTITION p_future VALUES LESS THAN MAXVALUE)");
+        verify(jdbcTemplate).execute("ALTER TABLE users REORGANIZE PARTITION p_future INTO ("
+                + "PARTITION p2028 VALUES LESS THAN (2029), PARTITION p_future VALUES LESS THAN MAXVALUE)");
+    }
+
+    @Test
+    void ensureUpcomingPartitions_whenAlreadyCovered_shouldNotAlterTable() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class)))
+                .thenReturn(List.of("p2026", "p2027", "p2028", "p_future"));
+
+        List<String> added = new UserPartitionMaintenance(jdbcTemplate, 2, MID_2026).ensureUpcomingPartitions();
+
+        assertThat(added).isEmpty();
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void ensureUpcomingPartitions_whenTableIsNotPartitioned_shouldDoNothing() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of());
+
+        List<String> added = new UserPartitionMaintenance(jdbcTemplate, 2, MID_2026).ensureUpcomingPartitions();
+
+        assertThat(added).isEmpty();
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void maintainPartitions_whenAlterFails_shouldLogInsteadOfThrowing() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of("p2025", "p_future"));
+        doThrow(new DataAccessResourceFailureException("ALTER command denied")).when(jdbcTemplate).execute(anyString());
+
+        assertThatCode(() -> new UserPartitionMaintenance(jdbcTemplate, 2, MID_2026).maintainPartitions())
+                .doesNotThrowAnyException();
+        verify(jdbcTemplate).execute(anyString()); // Stops at the first failure
+    }
+}
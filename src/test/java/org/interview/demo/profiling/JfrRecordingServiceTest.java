@@ -0,0 +1,102 @@
+package org.interview.demo.profiling;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.interview.demo.persistence.InstrumentedDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link JfrRecordingService} and the custom JFR events.
+ */
+class JfrRecordingServiceTest {
+
+    private final JfrRecordingService jfrRecordingService = new JfrRecordingService(Duration.ofMinutes(1), 16 * 1024 * 1024);
+
+    @AfterEach
+    void tearDown() {
+        jfrRecordingService.discard();
+    }
+
+    @Test
+    void startThenStop_shouldReturnRecordingWithHashedCin() throws Exception {
+        assertThat(jfrRecordingService.start(Duration.ofSeconds(30))).isTrue();
+        assertThat(jfrRecordingService.isRunning()).isTrue();
+
+        UserRequestPhaseEvent event = new UserRequestPhaseEvent("createUser", "validation");
+        event.begin();
+        event.finish("12345678");
+
+        Optional<Path> file = jfrRecordingService.stop();
+        assertThat(file).isPresent();
+        try {
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file.get()).stream()
+                    .filter(e -> e.getEventType().getName().equals("org.interview.demo.UserRequestPhase"))
+                    .toList();
+            assertThat(events).hasSize(1);
+            RecordedEvent recorded = events.get(0);
+            assertThat(recorded.getString("phase")).isEqualTo("validation");
+            assertThat(recorded.getString("cinHash"))
+                    .isEqualTo(CinHasher.hash("12345678"))
+                    .doesNotContain("12345678");
+        } finally {
+            Files.deleteIfExists(file.get());
+        }
+        assertThat(jfrRecordingService.isRunning()).isFalse();
+    }
+
+    @Test
+    void start_whenAlreadyRunning_shouldRefuse() throws Exception {
+        assertThat(jfrRecordingService.start(null)).isTrue();
+        assertThat(jfrRecordingService.start(null)).isFalse();
+    }
+
+    @Test
+    void stop_withoutRecording_shouldReturnEmpty() throws Exception {
+        assertThat(jfrRecordingService.stop()).isEmpty();
+    }
+
+    @Test
+    void persistenceEvents_shouldSeparatePoolWaitFlushAndCommit() throws Exception {
+        DataSource target = mock(DataSource.class);
+        when(target.getConnection()).thenReturn(mock(Connection.class));
+        DataSource dataSource = new InstrumentedDataSource(target, new SimpleMeterRegistry(), Duration.ofSeconds(1));
+        assertThat(jfrRecordingService.start(Duration.ofSeconds(30))).isTrue();
+
+        try (Connection connection = dataSource.getConnection()) {
+            SessionFlushProfilingListener listener = new SessionFlushProfilingListener();
+            listener.flushStart();
+            listener.flushEnd(1, 0);
+            connection.commit();
+        }
+
+        Optional<Path> file = jfrRecordingService.stop();
+        assertThat(file).isPresent();
+        try {
+            Map<String, List<RecordedEvent>> events = RecordingFile.readAllEvents(file.get()).stream()
+                    .collect(Collectors.groupingBy(e -> e.getEventType().getName()));
+            assertThat(events.get("org.interview.demo.ConnectionAcquire"))
+                    .singleElement().satisfies(e -> assertThat(e.getBoolean("acquired")).isTrue());
+            assertThat(events.get("org.interview.demo.SessionFlush"))
+                    .singleElement().satisfies(e -> assertThat(e.getInt("entityCount")).isEqualTo(1));
+            assertThat(events.get("org.interview.demo.TransactionCompletion"))
+                    .singleElement().satisfies(e -> assertThat(e.getString("action")).isEqualTo("commit"));
+        } finally {
+            Files.deleteIfExists(file.get());
+        }
+    }
+}
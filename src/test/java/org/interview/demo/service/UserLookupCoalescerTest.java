@@ -0,0 +1,148 @@
+package org.interview.demo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.interview.demo.model.User;
+import org.interview.demo.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+/**
+ * Concurrency tests for {@link UserLookupCoalescer}.
+ */
+@ExtendWith(MockitoExtension.class)
+class UserLookupCoalescerTest {
+
+    private static final int THREADS = 32;
+    private static final String CIN = "12345678";
+    private static final LocalDate RELEASE_DATE = LocalDate.of(2022, 5, 10);
+
+    @Mock
+    private UserRepository userRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private UserLookupCoalescer coalescer;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new UserLookupCoalescer(userRepository, meterRegistry, 5000);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.counter("users.lookup.queries", "outcome", outcome).count();
+    }
+
+    /**
+     * Starts THREADS identical lookups while the DB query is held open, and releases the query
+     * only once every other thread has joined it.
+     */
+    private List<Future<Optional<User>>> burst(CountDownLatch releaseQuery) throws Exception {
+        double coalescedBefore = count("coalesced");
+        List<Future<Optional<User>>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(() -> coalescer.findByCinAndCinReleaseDate(CIN, RELEASE_DATE)));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count("coalesced") - coalescedBefore < THREADS - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        releaseQuery.countDown();
+        return results;
+    }
+
+    @Test
+    void concurrentIdenticalLookups_shouldRunOneQueryPerBurst() throws Exception {
+        User user = new User(1L, "Burst User", CIN, RELEASE_DATE, true);
+        int bursts = 5;
+
+        for (int b = 0; b < bursts; b++) {
+            CountDownLatch releaseQuery = new CountDownLatch(1);
+            reset(userRepository);
+            when(userRepository.findByCinAndCinReleaseDate(CIN, RELEASE_DATE)).thenAnswer(invocation -> {
+                releaseQuery.await();
+                return Optional.of(user);
+            });
+
+            for (Future<Optional<User>> result : burst(releaseQuery)) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).containsSame(user);
+            }
+            verify(userRepository, times(1)).findByCinAndCinReleaseDate(CIN, RELEASE_DATE);
+        }
+
+        assertThat(count("executed")).isEqualTo(bursts);
+        assertThat(count("coalesced")).isEqualTo(bursts * (THREADS - 1));
+    }
+
+    @Test
+    void whenSharedQueryFails_everyWaiterShouldReceiveTheFailure() throws Exception {
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+        DataAccessResourceFailureException failure = new DataAccessResourceFailureException("db down");
+        when(userRepository.findByCinAndCinReleaseDate(CIN, RELEASE_DATE)).thenAnswer(invocation -> {
+            releaseQuery.await();
+            throw failure;
+        });
+
+        for (Future<Optional<User>> result : burst(releaseQuery)) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS)).hasCauseReference(failure);
+        }
+        verify(userRepository, times(1)).findByCinAndCinReleaseDate(CIN, RELEASE_DATE);
+    }
+
+    @Test
+    void whenSharedQueryIsSlow_waiterShouldTimeOut() throws Exception {
+        UserLookupCoalescer shortTimeout = new UserLookupCoalescer(userRepository, meterRegistry, 50);
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+        when(userRepository.findByCinAndCinReleaseDate(CIN, RELEASE_DATE)).thenAnswer(invocation -> {
+            releaseQuery.await();
+            return Optional.empty();
+        });
+
+        Future<Optional<User>> leader = executor.submit(() -> shortTimeout.findByCinAndCinReleaseDate(CIN, RELEASE_DATE));
+        while (count("executed") < 1) {
+            Thread.sleep(1);
+        }
+        assertThatThrownBy(() -> shortTimeout.findByCinAndCinReleaseDate(CIN, RELEASE_DATE))
+                .isInstanceOf(QueryTimeoutException.class);
+
+        releaseQuery.countDown();
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEmpty();
+    }
+
+    @Test
+    void lookupsAfterCompletion_shouldRunANewQuery() {
+        when(userRepository.findByCinAndCinReleaseDate(CIN, RELEASE_DATE)).thenReturn(Optional.empty());
+
+        coalescer.findByCinAndCinReleaseDate(CIN, RELEASE_DATE);
+        coalescer.findByCinAndCinReleaseDate(CIN, RELEASE_DATE);
+
+        verify(userRepository, times(2)).findByCinAndCinReleaseDate(CIN, RELEASE_DATE);
+        assertThat(count("coalesced")).isZero();
+    }
+}
@@ -1,16 +1,19 @@
 package org.interview.demo.service;
 
 import org.interview.demo.model.User;
+import org.interview.demo.model.UserPatch;
 import org.interview.demo.repository.UserRepository;
+import org.interview.demo.snapshot.UserSnapshotStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import jakarta.persistence.EntityNotFoundException;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -26,8 +29,13 @@ class UserServiceImplTest {
     @Mock // Creates a mock instance of UserRepository
     private UserRepository userRepository;
 
-    @InjectMocks // Creates UserServiceImpl and injects mocks (userRepository)
-    // Assumes UserServiceImpl uses constructor injection
+    @Mock
+    private UserStatsService userStatsService;
+
+    @Mock // Mocked find() returns Optional.empty(), so lookups reach the repository
+    private UserSnapshotStore userSnapshotStore;
+
+    // Built in setUp so the real lookup coalescer sits in front of the mocked repository
     private UserServiceImpl userService;
 
     private User userToCreate;
@@ -36,6 +44,8 @@ class UserServiceImplTest {
 
     @BeforeEach
     void setUp() {
+        userService = new UserServiceImpl(userRepository,
+                new UserLookupCoalescer(userRepository, new SimpleMeterRegistry(), 2000), userStatsService, userSnapshotStore);
         commonReleaseDate = LocalDate.of(2022, 1, 15);
         // User to be used in creation tests
         userToCreate = new User(null, "New User", "CINNEW01", commonReleaseDate, true);
@@ -48,8 +58,8 @@ class UserServiceImplTest {
     @Test
     void createUser_whenCinIsNew_shouldSaveAndReturnUserWithId() {
         // Arrange
-        // 1. When repository checks for existing CIN, find nothing
-        when(userRepository.findByCin(userToCreate.getCin())).thenReturn(Optional.empty());
+        // 1. When repository claims the CIN, nobody holds it yet
+        when(userRepository.claimCin(userToCreate.getCin(), userToCreate.getCinReleaseDate())).thenReturn(1);
 
         // 2. When repository saves the user, simulate it gets an ID and returns it
         User userAfterSave = new User(1L,
@@ -70,24 +80,28 @@ class UserServiceImplTest {
         assertThat(result.isMarriedStatus()).isEqualTo(userToCreate.isMarriedStatus());
 
 
-        // Verify that the expected repository methods were called
-        verify(userRepository).findByCin(userToCreate.getCin());
+        // Verify that the expected repository methods were called, and nothing else
+        // (pins the query count of createUser: one claim, one insert)
+        verify(userRepository).claimCin(userToCreate.getCin(), userToCreate.getCinReleaseDate());
         verify(userRepository).save(userToCreate);
+        verifyNoMoreInteractions(userRepository);
+        verify(userStatsService).recordCreated(userAfterSave);
     }
 
     @Test
     void createUser_whenCinAlreadyExists_shouldThrowIllegalArgumentException() {
         // Arrange
-        // When repository checks for existing CIN, it finds one
-        when(userRepository.findByCin(userToCreate.getCin())).thenReturn(Optional.of(existingUser));
+        // When repository claims the CIN, another user already holds it
+        when(userRepository.claimCin(userToCreate.getCin(), userToCreate.getCinReleaseDate())).thenReturn(0);
 
         // Act & Assert
         assertThatThrownBy(() -> userService.createUser(userToCreate))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("User with CIN " + userToCreate.getCin() + " already exists.");
 
-        // Verify that save was never called because the CIN check should prevent it
+        // Verify that save was never called because the CIN claim should prevent it
         verify(userRepository, never()).save(any(User.class));
+        verify(userStatsService, never()).recordCreated(any(User.class));
     }
 
     // --- Tests for getUserByCinAndCinReleaseDate ---
@@ -101,6 +115,8 @@ class UserServiceImplTest {
 
         // Act
         User result = userService.getUserByCinAndCinReleaseDate(existingUser.getCin(), existingUser.getCinReleaseDate());
+        verify(userRepository, times(1)).findByCinAndCinReleaseDate(existingUser.getCin(), existingUser.getCinReleaseDate());
+        verifyNoMoreInteractions(userRepository);
 
         // Assert
         assertThat(result).isNotNull();
@@ -123,4 +139,84 @@ class UserServiceImplTest {
                 .isInstanceOf(EntityNotFoundException.class)
                 .hasMessage("User not found with CIN: " + unknownCin + " and Release Date: " + unknownDate);
     }
+
+    // --- Tests for the exception-free API ---
+
+    @Test
+    void tryCreateUser_whenCinAlreadyExists_shouldReturnDuplicateWithoutSaving() {
+        when(userRepository.claimCin(userToCreate.getCin(), userToCreate.getCinReleaseDate())).thenReturn(0);
+
+        UserCreationResult result = userService.tryCreateUser(userToCreate);
+
+        assertThat(result).isEqualTo(new UserCreationResult.DuplicateCin(userToCreate.getCin()));
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void findUserByCinAndCinReleaseDate_whenUserDoesNotExist_shouldReturnEmpty() {
+        String unknownCin = "UNKNOWN1";
+        LocalDate unknownDate = LocalDate.of(2000, 1, 1);
+        when(userRepository.findByCinAndCinReleaseDate(unknownCin, unknownDate)).thenReturn(Optional.empty());
+
+        assertThat(userService.findUserByCinAndCinReleaseDate(unknownCin, unknownDate)).isEmpty();
+    }
+
+    // --- Tests for updates and deletes ---
+
+    @Test
+    void updateUser_whenVersionMatches_shouldIssueOnlyThePatchStatement() {
+        UserPatch patch = new UserPatch("Renamed", null, null, 3L);
+        when(userRepository.patch(1L, patch)).thenReturn(1);
+
+        UserModificationResult result = userService.updateUser(1L, patch);
+
+        assertThat(result).isEqualTo(new UserModificationResult.Applied(4L));
+        verify(userRepository, never()).findById(any());
+        verify(userRepository, never()).existsById(any());
+    }
+
+    @Test
+    void updateUser_whenNoRowMatches_shouldTellConflictFromNotFound() {
+        UserPatch patch = new UserPatch(null, null, true, 3L);
+        when(userRepository.patch(anyLong(), eq(patch))).thenReturn(0);
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(userRepository.existsById(2L)).thenReturn(false);
+
+        assertThat(userService.updateUser(1L, patch)).isInstanceOf(UserModificationResult.VersionConflict.class);
+        assertThat(userService.updateUser(2L, patch)).isInstanceOf(UserModificationResult.NotFound.class);
+        verify(userSnapshotStore).invalidate(List.of(1L)); // So the client's reload is not served the stale version again
+        verify(userSnapshotStore, never()).invalidate(List.of(2L));
+    }
+
+    @Test
+    void deleteUser_withoutVersion_shouldDeleteDirectly() {
+        when(userRepository.deleteUserById(1L)).thenReturn(1);
+
+        assertThat(userService.deleteUser(1L, null)).isEqualTo(new UserModificationResult.Applied(null));
+
+        verify(userRepository, never()).findById(any());
+        verify(userSnapshotStore).invalidate(List.of(1L));
+        // The summary table is maintained by a trigger, so the service has nothing to do
+        verifyNoInteractions(userStatsService);
+    }
+
+    @Test
+    void deleteUsers_shouldRunOneBulkStatement() {
+        List<Long> ids = List.of(1L, 2L, 3L);
+        when(userRepository.deleteUsersByIdIn(ids)).thenReturn(2);
+
+        assertThat(userService.deleteUsers(ids)).isEqualTo(2);
+        verify(userRepository, times(1)).deleteUsersByIdIn(ids);
+        verifyNoMoreInteractions(userRepository);
+    }
+
+    @Test
+    void findUserByCinAndCinReleaseDate_whenInSnapshot_shouldNotQueryRepository() {
+        when(userSnapshotStore.find(existingUser.getCin(), existingUser.getCinReleaseDate()))
+                .thenReturn(Optional.of(existingUser));
+
+        assertThat(userService.findUserByCinAndCinReleaseDate(existingUser.getCin(), existingUser.getCinReleaseDate()))
+                .contains(existingUser);
+        verifyNoInteractions(userRepository);
+    }
 }
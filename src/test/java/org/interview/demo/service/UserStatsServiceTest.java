@@ -0,0 +1,94 @@
+package org.interview.demo.service;
+
+import org.interview.demo.model.User;
+import org.interview.demo.model.UserMonthlyStats;
+import org.interview.demo.model.UserStats;
+import org.interview.demo.repository.UserMonthlyStatsRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link UserStatsService}.
+ */
+@ExtendWith(MockitoExtension.class)
+class UserStatsServiceTest {
+
+    @Mock
+    private UserMonthlyStatsRepository userMonthlyStatsRepository;
+
+    @InjectMocks
+    private UserStatsService userStatsService;
+
+    @Test
+    void load_shouldRestoreCountersFromSummaryTable() {
+        when(userMonthlyStatsRepository.findAll()).thenReturn(List.of(
+                new UserMonthlyStats("2022-01", 2, 3),
+                new UserMonthlyStats("2023-05", 1, 0)));
+
+        userStatsService.load();
+        UserStats stats = userStatsService.getStats();
+
+        assertThat(stats.totalUsers()).isEqualTo(6);
+        assertThat(stats.married()).isEqualTo(3);
+        assertThat(stats.unmarried()).isEqualTo(3);
+        assertThat(stats.issuancesByMonth()).containsExactly(Map.entry("2022-01", 5L), Map.entry("2023-05", 1L));
+        assertThat(stats.issuancesByYear()).containsExactly(Map.entry(2022, 5L), Map.entry(2023, 1L));
+    }
+
+    @Test
+    void refresh_shouldReplaceCacheWithSummaryTableContents() {
+        when(userMonthlyStatsRepository.findAll())
+                .thenReturn(List.of(new UserMonthlyStats("2022-01", 2, 3)))
+                .thenReturn(List.of(new UserMonthlyStats("2022-01", 2, 4), new UserMonthlyStats("2024-02", 1, 0)));
+        userStatsService.load();
+
+        // Another instance created two users in the meantime
+        userStatsService.refresh();
+
+        UserStats stats = userStatsService.getStats();
+        assertThat(stats.totalUsers()).isEqualTo(7);
+        assertThat(stats.issuancesByMonth()).containsExactly(Map.entry("2022-01", 6L), Map.entry("2024-02", 1L));
+    }
+
+    @Test
+    void recordCreated_shouldUpdateCacheWithoutWritingTheSummary() {
+        when(userMonthlyStatsRepository.findAll()).thenReturn(List.of());
+        userStatsService.load();
+
+        userStatsService.recordCreated(new User(1L, "A", "12345678", LocalDate.of(2023, 5, 10), true));
+        userStatsService.recordCreated(new User(2L, "B", "12345679", LocalDate.of(2023, 5, 20), false));
+
+        UserStats stats = userStatsService.getStats();
+        assertThat(stats.totalUsers()).isEqualTo(2);
+        assertThat(stats.married()).isEqualTo(1);
+        assertThat(stats.issuancesByMonth()).containsExactly(Map.entry("2023-05", 2L));
+        // The insert trigger maintains the summary table
+        verify(userMonthlyStatsRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void getStats_shouldOmitMonthsWhoseUsersWereAllDeleted() {
+        // The delete trigger leaves emptied months in the summary table with zero counts
+        when(userMonthlyStatsRepository.findAll()).thenReturn(List.of(
+                new UserMonthlyStats("2022-01", 0, 0),
+                new UserMonthlyStats("2023-05", 1, 0)));
+
+        userStatsService.load();
+        UserStats stats = userStatsService.getStats();
+
+        assertThat(stats.totalUsers()).isEqualTo(1);
+        assertThat(stats.issuancesByMonth()).containsExactly(Map.entry("2023-05", 1L));
+        assertThat(stats.issuancesByYear()).containsExactly(Map.entry(2023, 1L));
+    }
+}
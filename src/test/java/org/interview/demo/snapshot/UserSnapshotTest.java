@@ -0,0 +1,222 @@
+package org.interview.demo.snapshot;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.interview.demo.model.User;
+import org.interview.demo.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link UserSnapshot} and {@link UserSnapshotStore}.
+ */
+class UserSnapshotTest {
+
+    private static final LocalDate RELEASE_DATE = LocalDate.of(2022, 5, 10);
+    private static final Duration MAX_AGE = Duration.ofMinutes(10);
+
+    @TempDir
+    Path tempDir;
+
+    /** Users in (CIN, release date) order, as the database pages them to the snapshot writer. */
+    private static List<User> sortedUsers(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(new User((long) i + 1, "User é" + i, String.format("%08d", (i * 7919) % 100_000_000),
+                    RELEASE_DATE.minusDays(i % 3), i % 2 == 0, (long) i));
+        }
+        users.sort(Comparator.comparing(User::getCin).thenComparing(User::getCinReleaseDate));
+        return users;
+    }
+
+    private static void write(Path file, List<User> users, long highWaterMark) throws IOException {
+        try (UserSnapshot.Writer writer = UserSnapshot.writer(file)) {
+            for (User user : users) {
+                writer.append(user);
+            }
+            writer.commit(highWaterMark);
+        }
+    }
+
+    @Test
+    void writeThenMap_shouldFindEveryUserByCinAndReleaseDate() throws Exception {
+        List<User> users = sortedUsers(500);
+        Path file = tempDir.resolve("users.snapshot");
+
+        write(file, users, 500);
+        UserSnapshot snapshot = UserSnapshot.map(file);
+
+        assertThat(snapshot.getRecordCount()).isEqualTo(500);
+        assertThat(snapshot.getHighWaterMark()).isEqualTo(500);
+        for (User user : users) {
+            User found = snapshot.find(user.getCin(), user.getCinReleaseDate()).orElseThrow();
+            assertThat(found.getId()).isEqualTo(user.getId());
+            assertThat(found.getName()).isEqualTo(user.getName());
+            assertThat(found.isMarriedStatus()).isEqualTo(user.isMarriedStatus());
+            assertThat(found.getVersion()).isEqualTo(user.getVersion());
+        }
+        assertThat(snapshot.find(users.get(0).getCin(), RELEASE_DATE.plusDays(1))).isEmpty();
+        assertThat(snapshot.find("99999999", RELEASE_DATE)).isEmpty();
+        assertThat(Files.list(tempDir)).containsExactly(file); // Temporary files are cleaned up
+    }
+
+    @Test
+    void map_withSmallChunks_shouldFindUsersAcrossChunkBoundaries() throws Exception {
+        List<User> users = sortedUsers(300);
+        Path file = tempDir.resolve("users.snapshot");
+        write(file, users, 300);
+
+        // 7 records and 64 name bytes per mapping: records and names straddle many chunk boundaries
+        UserSnapshot snapshot = UserSnapshot.map(file, 7, 64);
+
+        for (User user : users) {
+            User found = snapshot.find(user.getCin(), user.getCinReleaseDate()).orElseThrow();
+            assertThat(found.getId()).isEqualTo(user.getId());
+            assertThat(found.getName()).isEqualTo(user.getName());
+        }
+    }
+
+    @Test
+    void append_outOfKeyOrder_shouldFailAndLeaveExistingSnapshot() throws Exception {
+        Path file = tempDir.resolve("users.snapshot");
+        write(file, List.of(new User(1L, "Old", "12345678", RELEASE_DATE, true, 0L)), 1);
+
+        try (UserSnapshot.Writer writer = UserSnapshot.writer(file)) {
+            writer.append(new User(3L, "B", "22222222", RELEASE_DATE, true, 0L));
+            assertThatThrownBy(() -> writer.append(new User(2L, "A", "11111111", RELEASE_DATE, true, 0L)))
+                    .isInstanceOf(IOException.class);
+        }
+
+        assertThat(UserSnapshot.map(file).find("12345678", RELEASE_DATE)).isPresent();
+        assertThat(Files.list(tempDir)).containsExactly(file);
+    }
+
+    @Test
+    void writeSnapshot_shouldPageUsersInKeyOrderIntoTheFile() throws Exception {
+        Path file = tempDir.resolve("users.snapshot");
+        List<User> users = sortedUsers(1500);
+        User lastOfFirstPage = users.get(999);
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findMaxId()).thenReturn(1500L);
+        when(userRepository.findPageAfterCinAndCinReleaseDate(eq(""), any(), any())).thenReturn(users.subList(0, 1000));
+        when(userRepository.findPageAfterCinAndCinReleaseDate(eq(lastOfFirstPage.getCin()), eq(lastOfFirstPage.getCinReleaseDate()), any()))
+                .thenReturn(users.subList(1000, 1500));
+        UserSnapshotStore store = new UserSnapshotStore(userRepository, new SimpleMeterRegistry(), true, file.toString(), MAX_AGE);
+
+        store.writeSnapshot();
+
+        UserSnapshot snapshot = UserSnapshot.map(file);
+        assertThat(snapshot.getRecordCount()).isEqualTo(1500);
+        assertThat(snapshot.getHighWaterMark()).isEqualTo(1500);
+        assertThat(store.find(users.get(1234).getCin(), users.get(1234).getCinReleaseDate())).contains(users.get(1234));
+        verify(userRepository, never()).findAll();
+    }
+
+    @Test
+    void warmUp_shouldServeSnapshotAndDeltaAndHonourInvalidation() throws Exception {
+        Path file = tempDir.resolve("users.snapshot");
+        User inSnapshot = new User(1L, "Snapshot User", "12345678", RELEASE_DATE, true, 0L);
+        User newer = new User(2L, "Newer User", "87654321", RELEASE_DATE, false, 0L);
+        write(file, List.of(inSnapshot), 1);
+
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findTop1000ByIdGreaterThanOrderByIdAsc(1L)).thenReturn(List.of(newer));
+        UserSnapshotStore store = new UserSnapshotStore(userRepository, new SimpleMeterRegistry(), true, file.toString(), MAX_AGE);
+
+        store.warmUp();
+
+        assertThat(store.find("12345678", RELEASE_DATE)).contains(inSnapshot);
+        assertThat(store.find("87654321", RELEASE_DATE)).contains(newer);
+        verify(userRepository, times(1)).findTop1000ByIdGreaterThanOrderByIdAsc(anyLong());
+
+        store.invalidate(List.of(1L));
+        store.invalidateCin("87654321");
+        assertThat(store.find("12345678", RELEASE_DATE)).isEmpty();
+        assertThat(store.find("87654321", RELEASE_DATE)).isEmpty();
+    }
+
+    @Test
+    void invalidate_committedAfterSnapshotWriteReadTheRow_shouldSurviveTheWrite() throws Exception {
+        Path file = tempDir.resolve("users.snapshot");
+        User before = new User(1L, "Before Patch", "12345678", RELEASE_DATE, true, 0L);
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findMaxId()).thenReturn(1L);
+        // The write reads the row before the patch commits
+        when(userRepository.findPageAfterCinAndCinReleaseDate(eq(""), any(), any())).thenReturn(List.of(before));
+        UserSnapshotStore store = new UserSnapshotStore(userRepository, new SimpleMeterRegistry(), true, file.toString(), MAX_AGE);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            store.invalidate(List.of(1L)); // Inside the patch transaction: deferred
+            store.writeSnapshot();
+            assertThat(store.find("12345678", RELEASE_DATE)).contains(before); // Not committed yet
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(store.find("12345678", RELEASE_DATE)).isEmpty();
+    }
+
+    @Test
+    void warmUp_whenSnapshotIsOlderThanMaxAge_shouldStartCold() throws Exception {
+        Path file = tempDir.resolve("users.snapshot");
+        write(file, List.of(new User(1L, "Snapshot User", "12345678", RELEASE_DATE, true, 0L)), 1);
+        UserRepository userRepository = mock(UserRepository.class);
+        // As if the instance was restarted 11 minutes after the last snapshot write
+        Clock restartedLater = Clock.offset(Clock.systemUTC(), MAX_AGE.plusMinutes(1));
+        UserSnapshotStore store = new UserSnapshotStore(userRepository, new SimpleMeterRegistry(), true, file.toString(),
+                MAX_AGE, restartedLater);
+
+        store.warmUp();
+
+        assertThat(store.find("12345678", RELEASE_DATE)).isEmpty();
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void find_whenSnapshotWritesKeepFailing_shouldStopServingAfterMaxAge() throws Exception {
+        Path file = tempDir.resolve("users.snapshot");
+        User inSnapshot = new User(1L, "Snapshot User", "12345678", RELEASE_DATE, true, 0L);
+        write(file, List.of(inSnapshot), 1);
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findMaxId()).thenThrow(new IllegalStateException("Database unavailable"));
+        Clock clock = mock(Clock.class);
+        long now = System.currentTimeMillis();
+        when(clock.millis()).thenReturn(now);
+        UserSnapshotStore store = new UserSnapshotStore(userRepository, new SimpleMeterRegistry(), true, file.toString(),
+                MAX_AGE, clock);
+        store.warmUp();
+        assertThat(store.find("12345678", RELEASE_DATE)).contains(inSnapshot);
+
+        store.writeSnapshot(); // Fails and keeps the old snapshot
+        when(clock.millis()).thenReturn(now + MAX_AGE.plusSeconds(1).toMillis());
+
+        assertThat(store.find("12345678", RELEASE_DATE)).isEmpty();
+    }
+
+    @Test
+    void find_whenDisabled_shouldAlwaysMiss() {
+        UserSnapshotStore store = new UserSnapshotStore(mock(UserRepository.class), new SimpleMeterRegistry(), false,
+                tempDir.resolve("missing").toString(), MAX_AGE);
+
+        store.warmUp();
+
+        assertThat(store.find("12345678", RELEASE_DATE)).isEmpty();
+    }
+}
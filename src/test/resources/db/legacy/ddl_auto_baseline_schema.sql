@@ -0,0 +1,14 @@
+-- The users table as Hibernate's ddl-auto=update created it before schema migrations were introduced:
+-- no version column, a generated unique key on cin, no partitions and no user_stats_monthly table.
+create table users (
+    cin_release_date date         not null,
+    married_status   bit          not null,
+    id               bigint       not null auto_increment,
+    cin              varchar(255) not null,
+    name             varchar(255) not null,
+    primary key (id)
+) engine = InnoDB;
+
+alter table users add constraint UK_6dotkott2kjsp8vw4d0m25fb7 unique (cin);
+
+insert into users (cin_release_date, married_status, cin, name) values ('2015-03-02', 1, '87654321', 'Legacy User');